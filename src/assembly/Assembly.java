@@ -2,23 +2,46 @@ package assembly;
 
 import machinery.StateInterface;
 import machinery.StateMachine;
+import machinery.VersionClock;
 import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
 import smalgebra.BasicStateProposition;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class Assembly implements AssemblyInterface {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -2588901079601996604L;
+
     private String assemblyId;
     private Map<String, StateMachine> stateMachines;
+    private transient Map<String, StateMachine> stateMachinesView;
+    /** Version stamp of the last change of the machine map; 0 until first read or change. */
+    private transient volatile long version;
+    private transient List<ChangeListener> changeListeners;
+    /** Registered on every machine while this assembly has listeners, to forward their changes. */
+    private transient ChangeListener machineListener;
 
     public Assembly(String assemblyId) {
         this.assemblyId = assemblyId;
         stateMachines = new LinkedHashMap<>();
     }
 
+    /**
+     * @return a read-only view of the machines by identifier; use {@link #addStateMachine(String, StateMachine)}
+     *         and {@link #removeStateMachine(String)} to modify them
+     */
     @Override
     public Map<String, StateMachine> getStateMachines() {
-        return stateMachines;
+        Map<String, StateMachine> view = stateMachinesView;
+        if (view == null) {
+            view = Collections.unmodifiableMap(stateMachines);
+            stateMachinesView = view;
+        }
+        return view;
     }
 
     public String getAssemblyId() {
@@ -28,7 +51,86 @@ public class Assembly implements AssemblyInterface {
 
     @Override
     public void addStateMachine(String identifier, StateMachine machine) {
-        stateMachines.put(identifier, machine);
+        StateMachine previous = stateMachines.put(identifier, machine);
+        if (machineListener != null) {
+            if (previous != null && !stateMachines.containsValue(previous)) {
+                previous.removeChangeListener(machineListener);
+            }
+            if (previous != machine) {
+                machine.addChangeListener(machineListener);
+            }
+        }
+        structureChanged();
+    }
+
+    @Override
+    public void removeStateMachine(String identifier) {
+        StateMachine removed = stateMachines.remove(identifier);
+        if (removed == null) {
+            return;
+        }
+        if (machineListener != null && !stateMachines.containsValue(removed)) {
+            removed.removeChangeListener(machineListener);
+        }
+        structureChanged();
+    }
+
+    /**
+     * @return the structural version of the assembly: it changes whenever a machine is added or removed or any of
+     *         its machines changes structure (see {@link StateMachine#getVersion()}), and never goes back
+     */
+    public long getVersion() {
+        long v = version;
+        if (v == 0) {
+            synchronized (this) {
+                if (version == 0) {
+                    version = VersionClock.next();
+                }
+                v = version;
+            }
+        }
+        // Stamps are globally increasing, so the latest change anywhere in the assembly is the largest one.
+        for (StateMachine machine : stateMachines.values()) {
+            v = Math.max(v, machine.getVersion());
+        }
+        return v;
+    }
+
+    /**
+     * Listeners are notified of the changes of the machine map and of the structural changes of the machines.
+     */
+    public synchronized void addChangeListener(ChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArrayList<>();
+        }
+        changeListeners.add(listener);
+        if (machineListener == null) {
+            machineListener = e -> fireChanged();
+            for (StateMachine machine : new HashSet<>(stateMachines.values())) {
+                machine.addChangeListener(machineListener);
+            }
+        }
+    }
+
+    public synchronized void removeChangeListener(ChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
+    }
+
+    private void structureChanged() {
+        version = VersionClock.next();
+        fireChanged();
+    }
+
+    private void fireChanged() {
+        List<ChangeListener> listeners = changeListeners;
+        if (listeners != null && !listeners.isEmpty()) {
+            ChangeEvent event = new ChangeEvent(this);
+            for (ChangeListener l : listeners) {
+                l.stateChanged(event);
+            }
+        }
     }
 
     @Override
@@ -199,43 +301,13 @@ public class Assembly implements AssemblyInterface {
 
     /**
      * Generates the universe of fully-specified configurations for the given assemblyId.
-     * It retrieves the Assembly instance using a registry (assumed to be available).
+     * The configurations are streamed from a {@link ConfigurationCursor} that skips the pseudostates.
      */
     public Set<Configuration> generateUniverse() {
         Set<Configuration> universe = new HashSet<>();
-        Map<String, StateMachine> machines = this.getStateMachines();
-        Map<String, List<String>> machineStates = new LinkedHashMap<>();
-        for (Map.Entry<String, StateMachine> entry : machines.entrySet()) {
-            String machineId = entry.getKey();
-            StateMachine machine = entry.getValue();
-            List<String> stateNames = new ArrayList<>();
-            for (StateInterface s : machine.getStates()) {
-                String stateName = s.getName();
-                if ( !stateName.equals("PseudoState") ) {
-                    stateNames.add(stateName);
-                }
-            }
-            machineStates.put(machineId, stateNames);
-        }
-// Build a list of lists of BasicStateProposition for each machine.
-        List<List<BasicStateProposition>> listOfPropLists = new ArrayList<>();
-        for (Map.Entry<String, List<String>> entry : machineStates.entrySet()) {
-            String machineId = entry.getKey();
-            List<String> states = entry.getValue();
-            // If a machine has no states, skip it.
-            if (states.isEmpty()) {
-                continue;
-            }
-            List<BasicStateProposition> propList = new ArrayList<>();
-            for (String state : states) {
-                propList.add(new BasicStateProposition(machineId, state));
-            }
-            listOfPropLists.add(propList);
-        }
-        List<List<BasicStateProposition>> cartesian = cartesianProduct(listOfPropLists);
-        for (List<BasicStateProposition> combination : cartesian) {
-            Configuration config = Configuration.fromBasicStatePropositions(this.assemblyId, combination);
-            universe.add(config);
+        ConfigurationCursor cursor = ConfigurationCursor.overUniverse(this);
+        while (cursor.next()) {
+            universe.add(cursor.toConfiguration());
         }
         return universe;
     }
@@ -9,13 +9,17 @@ import machinery.StateMachine;
 import machinery.TransitionInterface;
 import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SymbolTable;
 import smalgebra.BasicStateProposition;
+import smalgebra.CompiledProposition;
 import smalgebra.SMProposition;
+import smalgebra.TruthTable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Utility class that generates all possible Assembly instances
@@ -126,20 +130,55 @@ public class AssemblyGenerator {
     /**
      * Evaluates the given SMProposition formula over all feasible assemblies generated
      * Only assemblies for which the formula evaluates to true are converted to configurations and added to the final result.
+     * The feasible assemblies are not materialized: a {@link ConfigurationCursor} enumerates them as state vectors,
+     * on which the compiled formula is evaluated without modifying the template's machines. Spaces larger than
+     * {@link ConfigurationSpliterator#PARALLEL_THRESHOLD} are evaluated on a {@link TruthTable} when it
+     * {@link TruthTable#fits(long) fits}, and scanned by
+     * {@link #evaluateSMPropositionOverAllFeasibleAssembliesParallel(Assembly, SMProposition)} otherwise.
      *
      * @param template the Assembly template used to generate all feasible assemblies.
      * @param formula the SMProposition formula to evaluate.
      * @return a Semantics object containing the configurations corresponding to the assemblies that satisfy the formula.
      */
     public static Semantics evaluateSMPropositionOverAllFeasibleAssemblies(Assembly template, SMProposition formula) {
-        List<Assembly> assemblies = generateAllAssemblies(template);
         Semantics result = new Semantics(template.getAssemblyId());
-        for (Assembly assembly : assemblies) {
-            if (formula.evaluate(assembly)) {
-                // Convert assembly to configuration.
-                Configuration config = extractConfiguration(assembly);
-                result.addConfiguration(config);
+        ConfigurationCursor cursor = ConfigurationCursor.overAllStates(template);
+        if (cursor.size() > ConfigurationSpliterator.PARALLEL_THRESHOLD) {
+            if (TruthTable.fits(cursor.size())) {
+                TruthTable table = new TruthTable(template, true);
+                return table.toSemantics(table.evaluate(formula));
             }
+            return evaluateSMPropositionOverAllFeasibleAssembliesParallel(template, formula);
+        }
+        CompiledProposition program = CompiledProposition.of(formula, cursor.getSymbolTable());
+        int[] states = cursor.current();
+        while (cursor.next()) {
+            if (program.evaluate(states)) {
+                result.addConfiguration(cursor.toConfiguration());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parallel version of {@link #evaluateSMPropositionOverAllFeasibleAssemblies(Assembly, SMProposition)}: the
+     * feasible assemblies are split across the common fork-join pool by a {@link ConfigurationSpliterator}, each
+     * split evaluating the formula on its own cursor's state vector. Matches are collected in enumeration order and
+     * merged sequentially, so the result does not depend on the scheduling.
+     *
+     * @param template the Assembly template used to generate all feasible assemblies.
+     * @param formula the SMProposition formula to evaluate.
+     * @return a Semantics object containing the configurations corresponding to the assemblies that satisfy the formula.
+     */
+    public static Semantics evaluateSMPropositionOverAllFeasibleAssembliesParallel(Assembly template, SMProposition formula) {
+        CompiledProposition program = CompiledProposition.of(formula, SymbolTable.forAssembly(template.getAssemblyId()));
+        List<Configuration> satisfying = ConfigurationSpliterator.stream(template, true, true)
+                .filter(cursor -> program.evaluate(cursor.current()))
+                .map(ConfigurationCursor::toConfiguration)
+                .collect(Collectors.toList());
+        Semantics result = new Semantics(template.getAssemblyId());
+        for (Configuration c : satisfying) {
+            result.addConfiguration(c);
         }
         return result;
     }
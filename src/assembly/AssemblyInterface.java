@@ -11,6 +11,7 @@ import java.util.Map;
 public interface AssemblyInterface extends Serializable {
     Map<String, StateMachine> getStateMachines();
     void addStateMachine(String identifier, StateMachine machine);
+    void removeStateMachine(String identifier);
 
     /**
      * Restituisce tutte le assembly concrete generate (cioè, tutte le configurazioni possibili,
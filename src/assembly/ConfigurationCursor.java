@@ -0,0 +1,312 @@
+package assembly;
+
+import machinery.StateInterface;
+import machinery.StateMachine;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.SymbolTable;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mixed-radix odometer over the configuration space of an {@link Assembly}.
+ *
+ * <p>Each machine is a digit whose radix is its number of states; machines are ordered as in
+ * {@link Assembly#getStateMachines()} and the last machine varies fastest. Moving to the next configuration
+ * updates the digits in place and allocates nothing, so the whole space can be scanned without building an
+ * {@code Assembly} or a {@link Configuration} per combination.</p>
+ *
+ * <p>The current configuration is exposed in two forms:</p>
+ * <ul>
+ *   <li>{@link #digits()}: for each machine of the cursor, the index of its current state in
+ *       {@code getStates()} order;</li>
+ *   <li>{@link #current()}: for each machine index of the assembly's {@link SymbolTable}, the symbol-table index
+ *       of its current state, or {@link SymbolTable#NONE} for machines the cursor does not range over.</li>
+ * </ul>
+ *
+ * <p>Code that still evaluates propositions on the assembly itself can call {@link #applyTo()} to set each
+ * machine's current state, and {@link #restoreCurrentStates()} once done.</p>
+ *
+ * <p>Configurations are numbered in enumeration order (their rank, the mixed-radix value of the digits);
+ * {@link #seek(long)} jumps to any rank, which is what {@link ConfigurationSpliterator} uses to split the space.</p>
+ */
+public final class ConfigurationCursor {
+    private final Assembly assembly;
+    private final SymbolTable table;
+    private final String[] machineIds;
+    private final StateMachine[] machines;
+    private final StateInterface[][] states;
+    /** Symbol-table index of each machine of the cursor, and of each of its states. */
+    private final int[] machineSymbols;
+    private final int[][] stateSymbols;
+    private final StateInterface[] savedStates;
+
+    private final int[] digits;
+    private final int[] symbols;
+    private final long size;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * @param assembly            the assembly whose configurations are enumerated
+     * @param includePseudoStates whether machines may be in their pseudostate. Without pseudostates the space is the
+     *                            one of {@link Assembly#generateUniverse()}, where machines with no other state are
+     *                            left out; with them it is the one of
+     *                            {@link AssemblyGenerator#generateAllAssemblies(Assembly)}.
+     */
+    public ConfigurationCursor(Assembly assembly, boolean includePseudoStates) {
+        this.assembly = assembly;
+        this.table = SymbolTable.forAssembly(assembly.getAssemblyId());
+
+        List<String> ids = new ArrayList<>();
+        List<StateMachine> ms = new ArrayList<>();
+        List<StateInterface[]> ss = new ArrayList<>();
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            List<StateInterface> candidates = new ArrayList<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (includePseudoStates || !"PseudoState".equals(s.getName())) {
+                    candidates.add(s);
+                }
+            }
+            if (candidates.isEmpty() && !includePseudoStates) {
+                continue;
+            }
+            ids.add(entry.getKey());
+            ms.add(entry.getValue());
+            ss.add(candidates.toArray(new StateInterface[0]));
+        }
+        machineIds = ids.toArray(new String[0]);
+        machines = ms.toArray(new StateMachine[0]);
+        states = ss.toArray(new StateInterface[0][]);
+
+        machineSymbols = new int[machineIds.length];
+        stateSymbols = new int[machineIds.length][];
+        savedStates = new StateInterface[machineIds.length];
+        long count = 1;
+        for (int k = 0; k < machineIds.length; k++) {
+            machineSymbols[k] = table.internMachine(machineIds[k]);
+            stateSymbols[k] = new int[states[k].length];
+            for (int i = 0; i < states[k].length; i++) {
+                stateSymbols[k][i] = table.internState(machineIds[k], states[k][i].getName());
+            }
+            savedStates[k] = machines[k].getCurrentState();
+            count = count * states[k].length;
+        }
+        size = count;
+        digits = new int[machineIds.length];
+        symbols = new int[table.machineCount()];
+        reset();
+    }
+
+    /**
+     * Copy of a cursor over the same configurations, whose {@link #applyTo()} acts on private copies of the
+     * machines instead of the assembly's own.
+     */
+    private ConfigurationCursor(ConfigurationCursor source) {
+        this.assembly = new Assembly(source.assembly.getAssemblyId());
+        this.table = source.table;
+        this.machineIds = source.machineIds;
+        this.states = source.states;
+        this.machineSymbols = source.machineSymbols;
+        this.stateSymbols = source.stateSymbols;
+        this.machines = new StateMachine[machineIds.length];
+        this.savedStates = new StateInterface[machineIds.length];
+        for (Map.Entry<String, StateMachine> entry : source.assembly.getStateMachines().entrySet()) {
+            StateMachine m = entry.getValue();
+            // States and transitions are shared: only the current state has to be private.
+            StateMachine copy = new StateMachine(m.getName(), new ArrayList<>(m.getStates()),
+                    new ArrayList<>(m.getTransitions()), m.getCurrentState(), new HashSet<>(m.getEvents()));
+            assembly.addStateMachine(entry.getKey(), copy);
+        }
+        for (int k = 0; k < machineIds.length; k++) {
+            machines[k] = assembly.getStateMachines().get(machineIds[k]);
+            savedStates[k] = machines[k].getCurrentState();
+        }
+        this.size = source.size;
+        this.digits = new int[machineIds.length];
+        this.symbols = new int[source.symbols.length];
+        reset();
+    }
+
+    /**
+     * @return a cursor over the same configurations, rewound, whose {@link #getAssembly()} is a private copy of
+     *         this cursor's assembly: propositions can be evaluated on it while other threads use the original
+     */
+    public ConfigurationCursor detach() {
+        return new ConfigurationCursor(this);
+    }
+
+    /**
+     * @return a cursor over the universe of {@link Assembly#generateUniverse()}
+     */
+    public static ConfigurationCursor overUniverse(Assembly assembly) {
+        return new ConfigurationCursor(assembly, false);
+    }
+
+    /**
+     * @return a cursor over every combination of states, pseudostates included
+     */
+    public static ConfigurationCursor overAllStates(Assembly assembly) {
+        return new ConfigurationCursor(assembly, true);
+    }
+
+    /**
+     * Rewinds the cursor before the first configuration.
+     */
+    public void reset() {
+        Arrays.fill(digits, 0);
+        Arrays.fill(symbols, SymbolTable.NONE);
+        if (size > 0) {
+            for (int k = 0; k < digits.length; k++) {
+                symbols[machineSymbols[k]] = stateSymbols[k][0];
+            }
+        }
+        started = false;
+        finished = false;
+    }
+
+    /**
+     * Moves to the next configuration. The first call moves to the first configuration.
+     *
+     * @return false once every configuration has been visited; the cursor's position is then unspecified
+     */
+    public boolean next() {
+        if (!started) {
+            started = true;
+            finished = size == 0;
+            return !finished;
+        }
+        if (finished) {
+            return false;
+        }
+        for (int k = digits.length - 1; k >= 0; k--) {
+            int d = digits[k] + 1;
+            if (d < states[k].length) {
+                digits[k] = d;
+                symbols[machineSymbols[k]] = stateSymbols[k][d];
+                return true;
+            }
+            digits[k] = 0;
+            symbols[machineSymbols[k]] = stateSymbols[k][0];
+        }
+        finished = true;
+        return false;
+    }
+
+    /**
+     * Moves to the configuration of the given rank; {@link #next()} then continues from there.
+     *
+     * @throws IllegalArgumentException if rank is not in [0, size())
+     */
+    public void seek(long rank) {
+        if (rank < 0 || rank >= size) {
+            throw new IllegalArgumentException("Rank " + rank + " out of range [0, " + size + ").");
+        }
+        long rest = rank;
+        for (int k = digits.length - 1; k >= 0; k--) {
+            int radix = states[k].length;
+            int d = (int) (rest % radix);
+            rest /= radix;
+            digits[k] = d;
+            symbols[machineSymbols[k]] = stateSymbols[k][d];
+        }
+        started = true;
+        finished = false;
+    }
+
+    /**
+     * @return the rank of the current configuration
+     */
+    public long rank() {
+        long rank = 0;
+        for (int k = 0; k < digits.length; k++) {
+            rank = rank * states[k].length + digits[k];
+        }
+        return rank;
+    }
+
+    /**
+     * @return the number of configurations
+     */
+    public long size() {
+        return size;
+    }
+
+    public Assembly getAssembly() {
+        return assembly;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return table;
+    }
+
+    /**
+     * @return the state index of each machine of the cursor; the array is live and must not be modified
+     */
+    public int[] digits() {
+        return digits;
+    }
+
+    /**
+     * @return the current configuration in symbol-table coordinates; the array is live and must not be modified
+     */
+    public int[] current() {
+        return symbols;
+    }
+
+    public int machineCount() {
+        return machineIds.length;
+    }
+
+    public String machineId(int k) {
+        return machineIds[k];
+    }
+
+    public int stateCount(int k) {
+        return states[k].length;
+    }
+
+    public StateInterface state(int k, int i) {
+        return states[k][i];
+    }
+
+    /**
+     * @return the current state of machine k in this cursor's configuration
+     */
+    public StateInterface state(int k) {
+        return states[k][digits[k]];
+    }
+
+    /**
+     * Sets the current state of every machine of the assembly to the cursor's configuration.
+     */
+    public void applyTo() {
+        for (int k = 0; k < machines.length; k++) {
+            machines[k].setCurrentState(states[k][digits[k]]);
+        }
+    }
+
+    /**
+     * Restores the current states the machines had when the cursor was created.
+     */
+    public void restoreCurrentStates() {
+        for (int k = 0; k < machines.length; k++) {
+            machines[k].setCurrentState(savedStates[k]);
+        }
+    }
+
+    /**
+     * @return a new fully-specified Configuration for the cursor's configuration
+     */
+    public Configuration toConfiguration() {
+        List<BasicStateProposition> props = new ArrayList<>(machineIds.length);
+        for (int k = 0; k < machineIds.length; k++) {
+            props.add(new BasicStateProposition(machineIds[k], states[k][digits[k]].getName()));
+        }
+        return Configuration.fromBasicStatePropositions(assembly.getAssemblyId(), props);
+    }
+}
@@ -0,0 +1,103 @@
+package assembly;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splittable traversal of the configuration space of an {@link Assembly}, for parallel streams.
+ *
+ * <p>Each spliterator covers a range [from, to) of ranks (see {@link ConfigurationCursor#seek(long)}) and
+ * splits it in two halves, so a fork-join pool can spread the space over all cores without materializing it.
+ * The elements are {@link ConfigurationCursor}s positioned on the current configuration: each split owns a
+ * {@link ConfigurationCursor#detach() detached} cursor, so {@link ConfigurationCursor#applyTo()} and the
+ * evaluation of propositions on {@link ConfigurationCursor#getAssembly()} never race with other splits, and the
+ * template's current states are left untouched.</p>
+ *
+ * <p>The cursor is reused for every element of the split: consumers must copy what they keep (for instance
+ * with {@link ConfigurationCursor#toConfiguration()}) before returning. The spliterator is ORDERED, so an ordered
+ * collect yields the configurations in enumeration order whatever the splitting.</p>
+ */
+public final class ConfigurationSpliterator implements Spliterator<ConfigurationCursor> {
+    /** Number of configurations above which the sequential scans switch to a parallel stream. */
+    public static final long PARALLEL_THRESHOLD = 1L << 12;
+    /** Ranges smaller than this are not split further. */
+    private static final long MIN_SPLIT = 1L << 8;
+
+    private final ConfigurationCursor template;
+    private long from;
+    private final long to;
+    private ConfigurationCursor cursor;
+
+    /**
+     * @param assembly            the assembly whose configurations are enumerated
+     * @param includePseudoStates see {@link ConfigurationCursor#ConfigurationCursor(Assembly, boolean)}
+     */
+    public ConfigurationSpliterator(Assembly assembly, boolean includePseudoStates) {
+        this(new ConfigurationCursor(assembly, includePseudoStates));
+    }
+
+    private ConfigurationSpliterator(ConfigurationCursor template) {
+        this(template, 0, template.size());
+    }
+
+    private ConfigurationSpliterator(ConfigurationCursor template, long from, long to) {
+        this.template = template;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return a stream over the configurations of the assembly, in enumeration order
+     */
+    public static Stream<ConfigurationCursor> stream(Assembly assembly, boolean includePseudoStates, boolean parallel) {
+        return StreamSupport.stream(new ConfigurationSpliterator(assembly, includePseudoStates), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ConfigurationCursor> action) {
+        if (from >= to) {
+            return false;
+        }
+        if (cursor == null) {
+            cursor = template.detach();
+            cursor.seek(from);
+        } else {
+            cursor.next();
+        }
+        from++;
+        action.accept(cursor);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super ConfigurationCursor> action) {
+        while (tryAdvance(action)) {
+            // keep going
+        }
+    }
+
+    @Override
+    public Spliterator<ConfigurationCursor> trySplit() {
+        long remaining = to - from;
+        if (cursor != null || remaining < 2 * MIN_SPLIT) {
+            return null;
+        }
+        long mid = from + remaining / 2;
+        // The prefix goes to the new spliterator, as required for ORDERED spliterators.
+        ConfigurationSpliterator prefix = new ConfigurationSpliterator(template, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+}
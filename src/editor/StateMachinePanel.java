@@ -552,7 +552,7 @@ public class StateMachinePanel extends JPanel implements MouseListener, MouseMot
         editItem.addActionListener(ae -> {
             String newName = JOptionPane.showInputDialog(this, "Nuovo nome per lo stato:", state.getName());
             if (newName != null && !newName.trim().isEmpty()) {
-                ((State) state).setName(newName);
+                stateMachine.renameState(state, newName);
                 repaint();
             }
         });
@@ -565,9 +565,9 @@ public class StateMachinePanel extends JPanel implements MouseListener, MouseMot
                         "Sei sicuro di voler cancellare lo stato \"" + state.getName() + "\"?",
                         "Conferma cancellazione", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    boolean removed = stateMachine.getStates().remove(state);
+                    boolean removed = stateMachine.removeState(state);
                     if (removed) {
-                        stateMachine.getTransitions().removeIf(t -> t.getSource() == state || t.getTarget() == state);
+                        stateMachine.removeTransitionsIf(t -> t.getSource() == state || t.getTarget() == state);
                         System.out.println("Lo stato e le transizioni correlate sono stati rimossi dalla struttura dati.");
                     } else {
                         System.out.println("Errore: lo stato non è stato rimosso dalla struttura dati.");
@@ -598,7 +598,7 @@ public class StateMachinePanel extends JPanel implements MouseListener, MouseMot
 //            clearAnnotationsForTransition((PWSTransition) t);
 //        }
         // Rimuove la transizione dalla lista globale.
-        stateMachine.getTransitions().remove(t);
+        stateMachine.removeTransition(t);
 
         // Rimuove la transizione dalla lista delle transizioni in uscita dello stato sorgente.
         StateInterface source = t.getSource();
@@ -1,17 +1,32 @@
 package machinery;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.io.Serializable;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 public class StateMachine implements StateMachineInterface, Cloneable {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 4915677201179565566L;
+
     private String name;
     protected List<StateInterface> states;
     protected List<TransitionInterface> transitions;
     private StateInterface currentState;
     private Set<String> events;
     protected StateInterface pseudoState; // Pseudostato iniziale
+    /** Structural version stamp from {@link VersionClock}; 0 until first read or change. */
+    private transient volatile long version;
+    private transient List<ChangeListener> changeListeners;
+    /**
+     * Outgoing and triggered transitions, valid for the version it was built at. Threads that race to rebuild it
+     * build equal indexes and the last one wins, which the parallel semantics computation relies on.
+     */
+    private transient volatile TransitionIndex transitionIndex;
 
     public StateMachine(String name) {
         this.name = name;
@@ -67,6 +82,23 @@ public class StateMachine implements StateMachineInterface, Cloneable {
     @Override
     public void addState(StateInterface state) {
         states.add(state);
+        structureChanged();
+    }
+
+    /**
+     * @return true if the state was part of the machine. Transitions to and from it are left alone.
+     */
+    public boolean removeState(StateInterface state) {
+        boolean removed = states.remove(state);
+        if (removed) {
+            structureChanged();
+        }
+        return removed;
+    }
+
+    public void renameState(StateInterface state, String newName) {
+        state.setName(newName);
+        structureChanged();
     }
 
     @Override
@@ -79,6 +111,75 @@ public class StateMachine implements StateMachineInterface, Cloneable {
                 events.add(trigger);
             }
         }
+        structureChanged();
+    }
+
+    /**
+     * @return true if the transition was part of the machine
+     */
+    public boolean removeTransition(TransitionInterface transition) {
+        boolean removed = transitions.remove(transition);
+        if (removed) {
+            structureChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if some transition was removed
+     */
+    public boolean removeTransitionsIf(Predicate<? super TransitionInterface> filter) {
+        boolean removed = transitions.removeIf(filter);
+        if (removed) {
+            structureChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the structural version: it changes whenever states, transitions, events or names change, and
+     *         never goes back. The current state is not part of the structure.
+     */
+    public long getVersion() {
+        long v = version;
+        if (v == 0) {
+            synchronized (this) {
+                if (version == 0) {
+                    version = VersionClock.next();
+                }
+                v = version;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Records a structural change: takes a new version stamp and notifies the change listeners.
+     * Called by every mutator of this class; code that edits {@link #getStates()} or {@link #getTransitions()}
+     * in place must call it once done.
+     */
+    public void structureChanged() {
+        version = VersionClock.next();
+        List<ChangeListener> listeners = changeListeners;
+        if (listeners != null && !listeners.isEmpty()) {
+            ChangeEvent event = new ChangeEvent(this);
+            for (ChangeListener l : listeners) {
+                l.stateChanged(event);
+            }
+        }
+    }
+
+    public synchronized void addChangeListener(ChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArrayList<>();
+        }
+        changeListeners.add(listener);
+    }
+
+    public synchronized void removeChangeListener(ChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
     }
 
     @Override
@@ -107,6 +208,7 @@ public class StateMachine implements StateMachineInterface, Cloneable {
     @Override
     public void setName(String newName) {
         this.name = newName;
+        structureChanged();
     }
 
     public List<StateInterface> getLogicalStates() {
@@ -125,6 +227,7 @@ public class StateMachine implements StateMachineInterface, Cloneable {
 
     public void setStates(List<StateInterface> states) {
         this.states = states;
+        structureChanged();
     }
 
     @Override
@@ -132,8 +235,50 @@ public class StateMachine implements StateMachineInterface, Cloneable {
         return transitions;
     }
 
+    /**
+     * Looks up the transitions leaving a state in an adjacency index that is rebuilt, in one pass over
+     * {@link #getTransitions()}, the first time it is read after a structural change.
+     *
+     * @return the transitions of this machine whose source is the given state, in the order of
+     *         {@link #getTransitions()}; read-only
+     */
+    public List<TransitionInterface> getOutgoingTransitions(StateInterface state) {
+        return index().bySource.getOrDefault(state, Collections.emptyList());
+    }
+
+    /**
+     * Looks up the transitions with the given trigger event in the same index as
+     * {@link #getOutgoingTransitions(StateInterface)}, whether they are triggerable or autonomous.
+     *
+     * @return the transitions triggered by the event, grouped by source in the order of {@link #getStates()} and,
+     *         for each source, in the order of {@link #getTransitions()}; read-only
+     */
+    public List<TransitionInterface> getTransitionsTriggeredBy(String event) {
+        return index().byEvent.getOrDefault(event, Collections.emptyList());
+    }
+
+    /**
+     * @return for each source state name of the transitions triggered by the event, the target state names,
+     *         in the order of {@link #getTransitionsTriggeredBy(String)}; empty if no transition has the event;
+     *         read-only
+     */
+    public Map<String, List<String>> getEventMoves(String event) {
+        return index().movesByEvent.getOrDefault(event, Collections.emptyMap());
+    }
+
+    private TransitionIndex index() {
+        long v = getVersion();
+        TransitionIndex index = transitionIndex;
+        if (index == null || index.version != v) {
+            index = new TransitionIndex(v, states, transitions);
+            transitionIndex = index;
+        }
+        return index;
+    }
+
     public void setTransitions(List<TransitionInterface> transitions) {
         this.transitions = transitions;
+        structureChanged();
     }
 
     @Override
@@ -186,11 +331,13 @@ public class StateMachine implements StateMachineInterface, Cloneable {
                 clone.getStates().add(clone.pseudoState);
             }
         }
+        clone.structureChanged();
 
         return clone;
     }
     public void setEvents(Set<String> events) {
         this.events = events;
+        structureChanged();
     }
 
     public StateInterface getPseudoState() {
@@ -199,5 +346,52 @@ public class StateMachine implements StateMachineInterface, Cloneable {
 
     public void setPseudoState(StateInterface pseudoState) {
         this.pseudoState = pseudoState;
+        structureChanged();
+    }
+
+    private static final class TransitionIndex {
+        final long version;
+        /** Keyed by identity, as transitions refer to their states. */
+        final Map<StateInterface, List<TransitionInterface>> bySource = new IdentityHashMap<>();
+        final Map<String, List<TransitionInterface>> byEvent = new HashMap<>();
+        final Map<String, Map<String, List<String>>> movesByEvent = new HashMap<>();
+
+        TransitionIndex(long version, List<StateInterface> states, List<TransitionInterface> transitions) {
+            this.version = version;
+            for (TransitionInterface t : transitions) {
+                bySource.computeIfAbsent(t.getSource(), k -> new ArrayList<>()).add(t);
+            }
+            // Sources in the order of the states; those missing from the states, if any, after them
+            Set<StateInterface> sources = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<StateInterface> ordered = new ArrayList<>();
+            for (StateInterface s : states) {
+                if (bySource.containsKey(s) && sources.add(s)) {
+                    ordered.add(s);
+                }
+            }
+            for (TransitionInterface t : transitions) {
+                if (sources.add(t.getSource())) {
+                    ordered.add(t.getSource());
+                }
+            }
+            for (StateInterface s : ordered) {
+                for (TransitionInterface t : bySource.get(s)) {
+                    String event = t.getTriggerEvent();
+                    if (event == null) {
+                        continue;
+                    }
+                    byEvent.computeIfAbsent(event, k -> new ArrayList<>()).add(t);
+                    movesByEvent.computeIfAbsent(event, k -> new LinkedHashMap<>())
+                            .computeIfAbsent(t.getSource().getName(), k -> new ArrayList<>())
+                            .add(t.getTarget().getName());
+                }
+            }
+            bySource.replaceAll((k, list) -> Collections.unmodifiableList(list));
+            byEvent.replaceAll((k, list) -> Collections.unmodifiableList(list));
+            for (Map.Entry<String, Map<String, List<String>>> e : movesByEvent.entrySet()) {
+                e.getValue().replaceAll((k, list) -> Collections.unmodifiableList(list));
+                e.setValue(Collections.unmodifiableMap(e.getValue()));
+            }
+        }
     }
-}
\ No newline at end of file
+}
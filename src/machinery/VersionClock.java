@@ -0,0 +1,25 @@
+package machinery;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of structural version stamps.
+ *
+ * <p>Stamps come from one JVM-wide counter, so they are unique as well as increasing: a stamp identifies a
+ * structure even across objects, and an object loaded from a file, which starts with a fresh stamp, can never be
+ * mistaken for the one that was saved. Caches of derived data record the stamp they were computed for and are
+ * valid as long as it does not change.</p>
+ */
+public final class VersionClock {
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private VersionClock() {
+    }
+
+    /**
+     * @return a stamp greater than every stamp returned so far
+     */
+    public static long next() {
+        return CLOCK.incrementAndGet();
+    }
+}
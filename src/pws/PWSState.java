@@ -2,6 +2,7 @@ package pws;
 
 import assembly.Assembly;
 import machinery.State;
+import machinery.VersionClock;
 import pws.editor.annotation.StateSemanticsAnnotation;
 import pws.editor.semantics.ExitZone;
 import pws.editor.semantics.Semantics;
@@ -12,6 +13,9 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 public class PWSState extends State {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -8322314322969351339L;
+
     private transient StateSemanticsAnnotation annotation;
     private boolean annotationVisible = false; // Di default nascosta.
     // State semantics
@@ -22,6 +26,8 @@ public class PWSState extends State {
     private HashSet<ExitZone> reactiveSemantics;
     // Stores the raw constraint text entered by the user
     private String rawConstraintText;
+    /** Stamp of the last constraints edit from {@link VersionClock}; 0 until first read or edit. */
+    private transient volatile long editVersion;
 
     public PWSState(String name, Point position, Assembly assembly) {
         super(name, position);
@@ -38,12 +44,30 @@ public class PWSState extends State {
 
     public void setConstraintsSemantics(Semantics constraintsSemantics) {
         this.constraintsSemantics = constraintsSemantics;
+        editVersion = VersionClock.next();
         if (annotation != null) {
             annotation.setContent(this); // Updated to use 'this'
             annotation.repaint();
         }
     }
 
+    /**
+     * @return a stamp that changes whenever the constraints of this state are set
+     *         (see {@link PWSStateMachine#updateSemantics()})
+     */
+    public long getEditVersion() {
+        long v = editVersion;
+        if (v == 0) {
+            synchronized (this) {
+                if (editVersion == 0) {
+                    editVersion = VersionClock.next();
+                }
+                v = editVersion;
+            }
+        }
+        return v;
+    }
+
     // Getters and setters for autonomous semantics.
     public HashSet<ExitZone> getReactiveSemantics() {
         return reactiveSemantics;
@@ -57,6 +81,23 @@ public class PWSState extends State {
         }
     }
 
+    /**
+     * Sets the exit zones without refreshing the annotation, for computations off the event dispatch thread.
+     */
+    void assignReactiveSemantics(HashSet<ExitZone> reactiveSemantics) {
+        this.reactiveSemantics = reactiveSemantics;
+    }
+
+    /**
+     * Shows the current semantics and exit zones in the annotation, if any. Event dispatch thread only.
+     */
+    public void refreshAnnotation() {
+        if (annotation != null) {
+            annotation.setContent(this);
+            annotation.repaint();
+        }
+    }
+
     public StateSemanticsAnnotation getAnnotation() {
         return annotation;
     }
@@ -94,6 +135,13 @@ public class PWSState extends State {
         }
     }
 
+    /**
+     * Sets the state semantics without refreshing the annotation, for computations off the event dispatch thread.
+     */
+    void assignStateSemantics(Semantics stateSemantics) {
+        this.stateSemantics = stateSemantics;
+    }
+
     /** Sets the raw constraint text for this state (compact form). */
     public void setRawConstraintText(String text) {
         this.rawConstraintText = text;
@@ -9,12 +9,23 @@ import assembly.Assembly;
 import machinery.*;
 import pws.editor.semantics.Semantics;
 import pws.editor.semantics.SemanticsVisitor;
+import pws.editor.semantics.StateProjection;
 import smalgebra.BasicStateProposition;
 import smalgebra.SMProposition;
 import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 public class PWSStateMachine extends StateMachine {
     // Field to hold the Assembly that belongs to this PWSStateMachine.
@@ -22,6 +33,16 @@ public class PWSStateMachine extends StateMachine {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Edit stamps of the transitions and states, and structural versions, as of the last semantics computation;
+     * null until one has run.
+     */
+    private transient Map<Object, Long> computedEdits;
+    private transient long computedVersion;
+    private transient long computedAssemblyVersion;
+
+    private static final IntConsumer NO_PROGRESS = percent -> { };
+
     // Default constructor.
     // public PWSStateMachine() {
     //     super();
@@ -87,24 +108,123 @@ public class PWSStateMachine extends StateMachine {
      * 2) Compute a fixed-point over all other states' semantics via SemanticsVisitor.
      * 3) Assign the newly computed semantics back to each PWSState, skipping the pseudostate to preserve its initial semantics.
      * 4) Update each PWSTransition’s transitionSemantics by computing its pre- and post-conditions.
+     *
+     * The annotations are refreshed at the end, so this must run on the event dispatch thread when the machine is
+     * shown; see {@link #snapshotSemantics(boolean)} for running the computation elsewhere.
      */
     public void recalculateSemantics() {
-        // Initialize pseudostate semantics
-        if (pseudoState instanceof PWSState) {
-            PWSState pseudo = (PWSState) pseudoState;
-            Semantics init = assembly.calculateInitialStateSemantics();
-            pseudo.setStateSemantics(init);
+        computeSemantics(false);
+    }
+
+    /**
+     * Brings the semantics up to date after edits, recomputing only what the edits can have changed.
+     *
+     * <p>The edits are found through the edit stamps of transitions ({@link PWSTransition#getEditVersion()}:
+     * guard, actions, enablement) and states ({@link PWSState#getEditVersion()}: constraints) that changed since
+     * the last computation. The states reachable from an edited transition, or from a state whose exit zones
+     * changed, are retracted and rederived from the unaffected states
+     * ({@link SemanticsVisitor#recompute(PWSStateMachine, Set)}); the other states, and the
+     * semantics of the transitions leaving them, are kept. Structural changes of this machine or of the assembly
+     * (states, transitions or machines added or removed) fall back to {@link #recalculateSemantics()}.</p>
+     *
+     * <p>As {@link #recalculateSemantics()}, refreshes the annotations at the end.</p>
+     */
+    public void updateSemantics() {
+        computeSemantics(true);
+    }
+
+    /**
+     * Takes a copy of this machine and of its assembly, to compute the semantics as {@link #updateSemantics()}
+     * (incremental) or {@link #recalculateSemantics()} does on another thread while the model stays editable.
+     * Must be called on the thread that edits the model, the event dispatch thread when it is shown.
+     *
+     * @see SemanticsSnapshot
+     */
+    public SemanticsSnapshot snapshotSemantics(boolean incremental) {
+        return new SemanticsSnapshot(this, incremental);
+    }
+
+    private void computeSemantics(boolean incremental) {
+        // Stamps are read first: an edit made while computing is seen by the next computation.
+        Map<Object, Long> edits = currentEdits();
+        long version = getVersion();
+        long assemblyVersion = assembly.getVersion();
+        Set<PWSState> touchedStates = new LinkedHashSet<>();
+        Set<PWSTransition> touchedTransitions = new LinkedHashSet<>();
+        computeInto(previousEdits(incremental, version, assemblyVersion), edits, NO_PROGRESS,
+                touchedStates, touchedTransitions);
+        markComputed(edits, version, assemblyVersion);
+        // Un solo aggiornamento delle annotazioni, alla fine
+        for (PWSState ps : touchedStates) {
+            ps.refreshAnnotation();
         }
+        for (PWSTransition pt : touchedTransitions) {
+            pt.refreshAnnotation();
+        }
+    }
+
+    /**
+     * @return the edit stamps of the last computation if the semantics can be brought up to date from it, else null
+     */
+    Map<Object, Long> previousEdits(boolean incremental, long version, long assemblyVersion) {
+        if (incremental && computedVersion == version && computedAssemblyVersion == assemblyVersion) {
+            return computedEdits;
+        }
+        return null;
+    }
 
+    /**
+     * Records the stamps the semantics now stored in the states and transitions was computed for.
+     */
+    void markComputed(Map<Object, Long> edits, long version, long assemblyVersion) {
+        computedEdits = edits;
+        computedVersion = version;
+        computedAssemblyVersion = assemblyVersion;
+    }
+
+    /**
+     * Computes the semantics and stores it in the states and transitions, leaving their annotations alone.
+     *
+     * <p>Cancellation is cooperative: the computation checks the interrupt status of its thread and throws a
+     * {@link CancellationException} when it is set, leaving the semantics stored so far. A computation that may be
+     * cancelled runs on a copy (see {@link SemanticsSnapshot}).</p>
+     *
+     * @param previous           the edit stamps of the last computation, to recompute only what changed since;
+     *                           null to recompute everything
+     * @param edits              the current edit stamps of the states and transitions
+     * @param progress           receives the percentage done, from 0 to 100
+     * @param touchedStates      receives the states whose semantics or exit zones were stored
+     * @param touchedTransitions receives the transitions whose semantics was stored
+     */
+    void computeInto(Map<Object, Long> previous, Map<Object, Long> edits, IntConsumer progress,
+                     Set<PWSState> touchedStates, Set<PWSTransition> touchedTransitions) {
+        progress.accept(0);
+        if (previous != null) {
+            updateEdited(previous, edits, progress, touchedStates, touchedTransitions);
+        } else {
+            recalculateAll(progress, touchedStates, touchedTransitions);
+        }
+        progress.accept(100);
+    }
+
+    private void recalculateAll(IntConsumer progress, Set<PWSState> touchedStates,
+                                Set<PWSTransition> touchedTransitions) {
         // Precompute static exit zones based on each state's constraint semantics
-        for (StateInterface si : getStates()) {
+        List<StateInterface> all = getStates();
+        List<PWSState> constrained = new ArrayList<>();
+        for (StateInterface si : all) {
             if (si instanceof PWSState ps && si != pseudoState) {
-                ps.setReactiveSemantics(new HashSet<>(this.findExitZones(ps.getConstraintsSemantics())));
+                constrained.add(ps);
             }
         }
+        assignExitZones(constrained);
+        touchedStates.addAll(constrained);
+        progress.accept(30);
 
         // Compute fixed-point semantics for all states via SemanticsVisitor
         Map<PWSState, Semantics> semMap = SemanticsVisitor.computeAllStateSemantics(this);
+        checkCancelled();
+        progress.accept(80);
 
         // ----------------------------------------------------------------------
         // STATE SEMANTICS WRITE-BACK
@@ -112,11 +232,18 @@ public class PWSStateMachine extends StateMachine {
         // own field so that all UI annotations (state semantics, exit-zones, etc.)
         // pick up the freshly computed values.
         // ----------------------------------------------------------------------
+        // Initialize pseudostate semantics
+        if (pseudoState instanceof PWSState) {
+            PWSState pseudo = (PWSState) pseudoState;
+            pseudo.assignStateSemantics(assembly.calculateInitialStateSemantics());
+            touchedStates.add(pseudo);
+        }
         // Assign semantics to non-pseudostates
-        for (StateInterface s : getStates()) {
+        for (StateInterface s : all) {
             if (s instanceof PWSState && s != pseudoState) {
                 PWSState ps = (PWSState) s;
-                ps.setStateSemantics(semMap.get(ps));
+                ps.assignStateSemantics(semMap.get(ps));
+                touchedStates.add(ps);
             }
         }
 // ----------------------------------------------------------------------
@@ -125,14 +252,13 @@ public class PWSStateMachine extends StateMachine {
 // (for guard badges, action badges and reactive‐zone markers) even
 // after the visitor has computed full state semantics.
 // ----------------------------------------------------------------------
-//        // Update each PWSTransition’s semantics
+        List<PWSTransition> pwsTransitions = new ArrayList<>();
         for (TransitionInterface t : transitions) {
             if (t instanceof PWSTransition) {
-                PWSTransition pt = (PWSTransition) t;
-                Semantics ts = computeTransitionSemantics(pt);
-                pt.setTransitionSemantics(ts);
+                pwsTransitions.add((PWSTransition) t);
             }
         }
+        updateTransitionSemantics(pwsTransitions, progress, touchedTransitions);
         // ----------------------------------------------------------------------
         // LEGACY REACTIVE EXIT-ZONES WRITE-BACK (NO-OP)
         // The reactive exit-zone computation has been moved into
@@ -150,6 +276,126 @@ public class PWSStateMachine extends StateMachine {
 //        }
     }
 
+    private void updateEdited(Map<Object, Long> previous, Map<Object, Long> edits, IntConsumer progress,
+                              Set<PWSState> touchedStates, Set<PWSTransition> touchedTransitions) {
+        // States whose constraints changed get new exit zones, and so new reactive contributions.
+        Set<PWSState> editedStates = new HashSet<>();
+        List<PWSState> constrained = new ArrayList<>();
+        for (StateInterface si : getStates()) {
+            PWSState ps = (PWSState) si;
+            if (ps != pseudoState && !Objects.equals(previous.get(ps), edits.get(ps))) {
+                constrained.add(ps);
+            }
+        }
+        assignExitZones(constrained);
+        touchedStates.addAll(constrained);
+        editedStates.addAll(constrained);
+        progress.accept(30);
+        Set<PWSTransition> editedTransitions = new HashSet<>();
+        Deque<PWSState> roots = new ArrayDeque<>();
+        for (TransitionInterface t : transitions) {
+            if (t instanceof PWSTransition) {
+                PWSTransition pt = (PWSTransition) t;
+                if (!Objects.equals(previous.get(pt), edits.get(pt))
+                        || editedStates.contains(pt.getSource())) {
+                    editedTransitions.add(pt);
+                    // Retract the target even if the transition was just disabled.
+                    roots.add((PWSState) pt.getTarget());
+                }
+            }
+        }
+
+        // Forward closure of the roots: every state whose semantics may depend on an edit.
+        Set<PWSState> affected = new HashSet<>();
+        while (!roots.isEmpty()) {
+            PWSState s = roots.poll();
+            if (affected.add(s)) {
+                for (PWSTransition t : getEnabledOutgoingTransitions(s)) {
+                    roots.add((PWSState) t.getTarget());
+                }
+            }
+        }
+
+        if (!affected.isEmpty()) {
+            Map<PWSState, Semantics> semMap = new SemanticsVisitor().recompute(this, affected);
+            checkCancelled();
+            for (PWSState ps : affected) {
+                if (ps != pseudoState) {
+                    ps.assignStateSemantics(semMap.get(ps));
+                    touchedStates.add(ps);
+                }
+            }
+        }
+        progress.accept(80);
+        List<PWSTransition> stale = new ArrayList<>();
+        for (TransitionInterface t : transitions) {
+            if (t instanceof PWSTransition) {
+                PWSTransition pt = (PWSTransition) t;
+                if (editedTransitions.contains(pt) || affected.contains(pt.getSource())) {
+                    stale.add(pt);
+                }
+            }
+        }
+        updateTransitionSemantics(stale, progress, touchedTransitions);
+    }
+
+    /**
+     * Recomputes the semantics of the transitions from the state semantics, reporting progress from 80 to 100.
+     */
+    private void updateTransitionSemantics(List<PWSTransition> stale, IntConsumer progress,
+                                           Set<PWSTransition> touchedTransitions) {
+        int done = 0;
+        for (PWSTransition pt : stale) {
+            checkCancelled();
+            pt.assignTransitionSemantics(computeTransitionSemantics(pt));
+            touchedTransitions.add(pt);
+            progress.accept(80 + 20 * ++done / stale.size());
+        }
+    }
+
+    /**
+     * @return the edit stamps of the states and transitions, keyed by identity
+     */
+    Map<Object, Long> currentEdits() {
+        Map<Object, Long> edits = new IdentityHashMap<>();
+        for (StateInterface si : getStates()) {
+            edits.put(si, ((PWSState) si).getEditVersion());
+        }
+        for (TransitionInterface t : transitions) {
+            if (t instanceof PWSTransition) {
+                edits.put(t, ((PWSTransition) t).getEditVersion());
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Computes the exit zones of the states in parallel, as each only reads its own constraints, then assigns them
+     * on the calling thread. Interrupting the calling thread cancels the computation.
+     */
+    private void assignExitZones(List<PWSState> states) {
+        checkCancelled();
+        Thread caller = Thread.currentThread();
+        List<HashSet<ExitZone>> zones = states.parallelStream()
+                .map(ps -> {
+                    if (caller.isInterrupted()) {
+                        throw new CancellationException("Semantics computation cancelled.");
+                    }
+                    return findExitZones(ps.getConstraintsSemantics());
+                })
+                .collect(Collectors.toList());
+        checkCancelled();
+        for (int i = 0; i < states.size(); i++) {
+            states.get(i).assignReactiveSemantics(zones.get(i));
+        }
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Semantics computation cancelled.");
+        }
+    }
+
     /**
      * LEGACY: Old transition-semantics implementation.
      * This method has been replaced by
@@ -192,12 +438,9 @@ public class PWSStateMachine extends StateMachine {
      * @return the transition’s contribution
      */
     public Semantics computeTriggerableSemantics(PWSTransition t, Semantics base) {
-        Semantics guardSem = t.getGuardProposition().toSemantics(assembly);
-        Semantics result = base.AND(guardSem);
-        for (Action a : t.getActionList()) {
-            result = result.transformByMachineEvent(a.getMachineId(), a.getEvent(), assembly);
-        }
-        return result;
+        // Guard semantics and composed actions are cached on the transition
+        Semantics result = base.AND(t.guardSemantics(assembly));
+        return t.actionTransformer(assembly).apply(result);
     }
 
     /**
@@ -253,10 +496,23 @@ public class PWSStateMachine extends StateMachine {
                 result = result.OR(frag);
             }
         }
-        for (Action a : t.getActionList()) {
-            result = result.transformByMachineEvent(a.getMachineId(), a.getEvent(), assembly);
+        return t.actionTransformer(assembly).apply(result);
+    }
+
+    /**
+     * @return the enabled PWS transitions leaving the state, from the outgoing index of
+     *         {@link #getOutgoingTransitions(StateInterface)}. Enablement is read at each call, so toggling
+     *         {@link PWSTransition#setEnabled(boolean)} needs no structural change.
+     */
+    public List<PWSTransition> getEnabledOutgoingTransitions(StateInterface state) {
+        List<TransitionInterface> outgoing = getOutgoingTransitions(state);
+        List<PWSTransition> enabled = new ArrayList<>(outgoing.size());
+        for (TransitionInterface t : outgoing) {
+            if (t instanceof PWSTransition && ((PWSTransition) t).isEnabled()) {
+                enabled.add((PWSTransition) t);
+            }
         }
-        return result;
+        return enabled;
     }
 
     /**
@@ -320,39 +576,41 @@ public class PWSStateMachine extends StateMachine {
      */
     public HashSet<ExitZone> findExitZones(Semantics baseSemantics) {
         HashSet<ExitZone> reactiveSem = new HashSet<>();
+        // Gli stati possibili di ciascuna macchina nella semantica: ogni test e' un bit
+        StateProjection base = baseSemantics.projection();
         Map<String, StateMachine> stateMachines = assembly.getStateMachines();
         if (stateMachines != null) {
             for (Map.Entry<String, StateMachine> entry : stateMachines.entrySet()) {
                 String machineId = entry.getKey();
                 StateMachine machine = entry.getValue();
-                List<TransitionInterface> allTransitions = machine.getTransitions();
-                if (allTransitions != null) {
-                    for (TransitionInterface t : allTransitions) {
-                        if (t instanceof Transition) {
-                            Transition transition = (Transition) t;
-                            if (transition.isAutonomous()) {
-                                State sourceState = (State) transition.getSource();
-                                State targetState = (State) transition.getTarget();
-                                BasicStateProposition bs_source = new BasicStateProposition(machineId, sourceState.getName());
-                                BasicStateProposition bs_target = null;
-                                // una trans. autononome da luogo a una EZ se e solo se:
-                                // - la sorgente della bsp ha un'intersezione non nulla con la sem. dello stato
-                                // - il target della bsp ha un'intersezione nulla con la sem. dello stato
-                                Semantics sourceAndSem = bs_source.toSemantics( assembly ).AND(baseSemantics);
-                                if( !sourceAndSem.ISEMPTY()) {
-                                    bs_target = new BasicStateProposition(machineId, targetState.getName());
-                                    Semantics targetAndSem = bs_target.toSemantics( assembly ).AND(baseSemantics);
-                                    if( targetAndSem.ISEMPTY()) {
-                                        ExitZone ez = new ExitZone(
-                                                machineId,
-                                                transition,
-                                                bs_source,
-                                                bs_target
-                                        );
-                                        reactiveSem.add(ez);
-                                    }
-                                }
+                // Le transizioni sono visitate per stato sorgente: il test sulla sorgente si fa una volta per stato.
+                for (StateInterface s : machine.getStates()) {
+                    State sourceState = (State) s;
+                    BasicStateProposition bs_source = null;
+                    for (TransitionInterface t : machine.getOutgoingTransitions(s)) {
+                        if (!(t instanceof Transition) || !t.isAutonomous()) {
+                            continue;
+                        }
+                        Transition transition = (Transition) t;
+                        if (bs_source == null) {
+                            // una trans. autononome da luogo a una EZ se e solo se:
+                            // - la sorgente della bsp ha un'intersezione non nulla con la sem. dello stato
+                            // - il target della bsp ha un'intersezione nulla con la sem. dello stato
+                            if (!base.mayBeIn(machineId, sourceState.getName())) {
+                                break;
                             }
+                            bs_source = new BasicStateProposition(machineId, sourceState.getName());
+                        }
+                        State targetState = (State) transition.getTarget();
+                        if (!base.mayBeIn(machineId, targetState.getName())) {
+                            BasicStateProposition bs_target = new BasicStateProposition(machineId, targetState.getName());
+                            ExitZone ez = new ExitZone(
+                                    machineId,
+                                    transition,
+                                    bs_source,
+                                    bs_target
+                            );
+                            reactiveSem.add(ez);
                         }
                     }
                 }
@@ -5,9 +5,11 @@ import assembly.ActionList;
 import assembly.Assembly;
 import machinery.StateInterface;
 import machinery.Transition;
+import machinery.VersionClock;
 import pws.editor.annotation.ActionAnnotation;
 import pws.editor.annotation.GuardAnnotation;
 import pws.editor.annotation.TransitionSemanticsAnnotation;
+import pws.editor.semantics.ActionTransformer;
 import pws.editor.semantics.Semantics;
 import smalgebra.SMProposition;
 import smalgebra.TrueProposition;
@@ -15,6 +17,9 @@ import smalgebra.TrueProposition;
 import java.io.Serializable;
 
 public class PWSTransition extends Transition implements Serializable {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 8133758174825076351L;
+
     // Nuovi campi semantici
     private Assembly assembly;
     private SMProposition guardProposition;
@@ -27,6 +32,14 @@ public class PWSTransition extends Transition implements Serializable {
     private transient TransitionSemanticsAnnotation semanticsAnnotation;
     /** Whether this transition is enabled (drawn black and contributes semantics). */
     private boolean enabled = true;
+    /** Stamp of the last edit from {@link VersionClock}; 0 until first read or edit. */
+    private transient volatile long editVersion;
+    /**
+     * Guard semantics and composed actions, valid for the assembly version and edit stamp they were built at.
+     * Threads that race to compile them build equal values and the last one wins, which the parallel semantics
+     * computation relies on.
+     */
+    private transient volatile CompiledSemantics compiled;
 
     /** Returns whether this transition is enabled. */
     public boolean isEnabled() {
@@ -39,6 +52,86 @@ public class PWSTransition extends Transition implements Serializable {
      */
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        edited();
+    }
+
+    /**
+     * @return a stamp that changes whenever the guard, the actions or the enablement of this transition are set
+     *         (see {@link PWSStateMachine#updateSemantics()})
+     */
+    public long getEditVersion() {
+        long v = editVersion;
+        if (v == 0) {
+            synchronized (this) {
+                if (editVersion == 0) {
+                    editVersion = VersionClock.next();
+                }
+                v = editVersion;
+            }
+        }
+        return v;
+    }
+
+    private void edited() {
+        editVersion = VersionClock.next();
+        compiled = null;
+    }
+
+    /**
+     * @return the semantics of the guard over the assembly, kept until the guard, the actions or the assembly's
+     *         structure change; shared, not to be modified
+     */
+    Semantics guardSemantics(Assembly assembly) {
+        return compiled(assembly).guard;
+    }
+
+    /**
+     * @return the actions composed into one transformer, kept as {@link #guardSemantics(Assembly)}
+     */
+    ActionTransformer actionTransformer(Assembly assembly) {
+        return compiled(assembly).actions;
+    }
+
+    private CompiledSemantics compiled(Assembly assembly) {
+        long edit = getEditVersion();
+        long version = assembly.getVersion();
+        CompiledSemantics c = compiled;
+        if (c == null || c.assembly != assembly || c.version != version || c.editVersion != edit) {
+            c = new CompiledSemantics(assembly, version, edit,
+                    guardProposition.toSemantics(assembly), ActionTransformer.of(actionList, assembly));
+            compiled = c;
+        }
+        return c;
+    }
+
+    /**
+     * Hands the guard semantics and composed actions compiled here to another transition with the same guard and
+     * actions over an assembly with the same machines, such as a copy, so that it does not compile them again.
+     * The caller checks that they are the same; nothing is handed over if they are out of date here.
+     */
+    void shareCompiled(PWSTransition other) {
+        CompiledSemantics c = compiled;
+        if (c != null && c.version == c.assembly.getVersion() && c.editVersion == getEditVersion()) {
+            other.compiled = new CompiledSemantics(other.assembly, other.assembly.getVersion(),
+                    other.getEditVersion(), c.guard, c.actions);
+        }
+    }
+
+    private static final class CompiledSemantics {
+        final Assembly assembly;
+        final long version;
+        final long editVersion;
+        final Semantics guard;
+        final ActionTransformer actions;
+
+        CompiledSemantics(Assembly assembly, long version, long editVersion, Semantics guard,
+                          ActionTransformer actions) {
+            this.assembly = assembly;
+            this.version = version;
+            this.editVersion = editVersion;
+            this.guard = guard;
+            this.actions = actions;
+        }
     }
     public PWSTransition(Assembly assembly) {
         super();
@@ -70,6 +163,7 @@ public class PWSTransition extends Transition implements Serializable {
 
     public void setGuardProposition(SMProposition guardProposition) {
         this.guardProposition = guardProposition;
+        edited();
     }
 
     public ActionList getActionList() {
@@ -78,10 +172,12 @@ public class PWSTransition extends Transition implements Serializable {
 
     public void addAction(Action action) {
         actionList.add(action);
+        edited();
     }
 
     public void setActionList(ActionList actionList) {
         this.actionList = actionList;
+        edited();
     }
 
     public Semantics getTransitionSemantics() {
@@ -96,6 +192,23 @@ public class PWSTransition extends Transition implements Serializable {
         }
     }
 
+    /**
+     * Sets the semantics without refreshing the annotation, for computations off the event dispatch thread.
+     */
+    void assignTransitionSemantics(Semantics transitionSemantics) {
+        this.transitionSemantics = transitionSemantics;
+    }
+
+    /**
+     * Shows the current semantics in the annotation, if any. Event dispatch thread only.
+     */
+    public void refreshAnnotation() {
+        if (semanticsAnnotation != null) {
+            semanticsAnnotation.setContent(transitionSemantics);
+            semanticsAnnotation.repaint();
+        }
+    }
+
     public GuardAnnotation getGuardAnnotation() {
         return guardAnnotation;
     }
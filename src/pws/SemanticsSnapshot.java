@@ -0,0 +1,209 @@
+package pws;
+
+import machinery.StateMachine;
+import machinery.Transition;
+import pws.editor.semantics.ExitZone;
+import pws.editor.semantics.Semantics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * A copy of a {@link PWSStateMachine} and of its assembly, to compute the semantics on another thread while the
+ * model stays editable.
+ *
+ * <p>The copy is taken when the snapshot is created, on the thread that edits the model (the event dispatch thread
+ * when it is shown). {@link #compute(IntConsumer)} only reads and writes the copy, so it can run on any thread and
+ * be cancelled at any point, leaving the model with its previous semantics. It returns the publication of the
+ * result, to run on the editing thread: the semantics of the copy is stored in the corresponding states and
+ * transitions of the model, whose annotations are then refreshed.</p>
+ *
+ * <p>The copy shares the {@link Semantics} values of the model, which are never modified once stored, and
+ * duplicates the rest: states, transitions, guards and the machines of the assembly.</p>
+ *
+ * <p>Edits made in the meantime are not reflected in the result. The model records the stamps of the snapshot as
+ * those of its last computation, so the next update recomputes whatever was edited since.</p>
+ */
+public final class SemanticsSnapshot {
+    private final PWSStateMachine machine;
+    private final PWSStateMachine copy;
+    /** Stamps of the model when the snapshot was taken. */
+    private final Map<Object, Long> edits;
+    private final long version;
+    private final long assemblyVersion;
+    /** Stamps of the last computation and of the snapshot, keyed by the objects of the copy; previous may be null. */
+    private final Map<Object, Long> copyPrevious;
+    private final Map<Object, Long> copyEdits;
+    /** The states and transitions of the model and of its machines, keyed by their copies. */
+    private final Map<Object, Object> originals = new IdentityHashMap<>();
+
+    SemanticsSnapshot(PWSStateMachine machine, boolean incremental) {
+        this.machine = machine;
+        this.edits = machine.currentEdits();
+        this.version = machine.getVersion();
+        this.assemblyVersion = machine.getAssembly().getVersion();
+        Map<Object, Long> previous = machine.previousEdits(incremental, version, assemblyVersion);
+
+        this.copy = copyOf(machine);
+        align(machine.getStates(), copy.getStates());
+        align(machine.getTransitions(), copy.getTransitions());
+        Map<String, StateMachine> copiedMachines = copy.getAssembly().getStateMachines();
+        for (Map.Entry<String, StateMachine> e : machine.getAssembly().getStateMachines().entrySet()) {
+            align(e.getValue().getTransitions(), copiedMachines.get(e.getKey()).getTransitions());
+        }
+        this.copyEdits = forCopy(edits);
+        this.copyPrevious = previous != null ? forCopy(previous) : null;
+        // The copies start with the guards and actions already compiled in the model.
+        for (Map.Entry<Object, Object> e : originals.entrySet()) {
+            if (e.getKey() instanceof PWSTransition) {
+                ((PWSTransition) e.getValue()).shareCompiled((PWSTransition) e.getKey());
+            }
+        }
+    }
+
+    /**
+     * Computes the semantics of the copy. Interrupting the calling thread cancels the computation with a
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * @param progress receives the percentage done, from 0 to 100
+     * @return the publication of the result in the model, to run once on the thread that edits it
+     */
+    public Runnable compute(IntConsumer progress) {
+        Set<PWSState> touchedStates = new LinkedHashSet<>();
+        Set<PWSTransition> touchedTransitions = new LinkedHashSet<>();
+        copy.computeInto(copyPrevious, copyEdits, progress, touchedStates, touchedTransitions);
+        return () -> publish(touchedStates, touchedTransitions);
+    }
+
+    private void publish(Set<PWSState> touchedStates, Set<PWSTransition> touchedTransitions) {
+        boolean sameAssembly = machine.getAssembly().getVersion() == assemblyVersion;
+        for (PWSState s : touchedStates) {
+            PWSState target = (PWSState) originals.get(s);
+            target.assignStateSemantics(s.getStateSemantics());
+            target.assignReactiveSemantics(originalZones(s.getReactiveSemantics()));
+        }
+        for (PWSTransition t : touchedTransitions) {
+            PWSTransition target = (PWSTransition) originals.get(t);
+            target.assignTransitionSemantics(t.getTransitionSemantics());
+            // Guards compiled on the copy are kept if the transition was not edited since.
+            if (sameAssembly && Objects.equals(edits.get(target), target.getEditVersion())) {
+                t.shareCompiled(target);
+            }
+        }
+        machine.markComputed(edits, version, assemblyVersion);
+        // Un solo aggiornamento delle annotazioni, alla fine
+        for (PWSState s : touchedStates) {
+            ((PWSState) originals.get(s)).refreshAnnotation();
+        }
+        for (PWSTransition t : touchedTransitions) {
+            ((PWSTransition) originals.get(t)).refreshAnnotation();
+        }
+    }
+
+    /**
+     * @return the exit zones with the transitions of the model's machines in place of their copies
+     */
+    private HashSet<ExitZone> originalZones(HashSet<ExitZone> zones) {
+        if (zones == null) {
+            return null;
+        }
+        HashSet<ExitZone> result = new HashSet<>();
+        for (ExitZone ez : zones) {
+            result.add(new ExitZone(ez.getStateMachineId(), (Transition) originals.get(ez.getTransition()),
+                    ez.getSource(), ez.getTarget()));
+        }
+        return result;
+    }
+
+    private void align(List<?> model, List<?> copied) {
+        for (int i = 0; i < model.size(); i++) {
+            originals.put(copied.get(i), model.get(i));
+        }
+    }
+
+    private Map<Object, Long> forCopy(Map<Object, Long> stamps) {
+        Map<Object, Long> result = new IdentityHashMap<>();
+        for (Map.Entry<Object, Object> e : originals.entrySet()) {
+            Long stamp = stamps.get(e.getValue());
+            if (stamp != null) {
+                result.put(e.getKey(), stamp);
+            }
+        }
+        return result;
+    }
+
+    private static PWSStateMachine copyOf(PWSStateMachine machine) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            List<Object> shared;
+            try (SharingOutputStream out = new SharingOutputStream(bytes)) {
+                out.writeObject(machine);
+                shared = out.shared;
+            }
+            try (SharingInputStream in = new SharingInputStream(new ByteArrayInputStream(bytes.toByteArray()),
+                    shared)) {
+                return (PWSStateMachine) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot copy machine '" + machine.getName() + "'.", e);
+        }
+    }
+
+    /** Writes each Semantics as a reference to the instance, to be shared by the copy. */
+    private static final class SharingOutputStream extends ObjectOutputStream {
+        final List<Object> shared = new ArrayList<>();
+
+        SharingOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof Semantics) {
+                shared.add(obj);
+                return new SharedReference(shared.size() - 1);
+            }
+            return obj;
+        }
+    }
+
+    private static final class SharingInputStream extends ObjectInputStream {
+        private final List<Object> shared;
+
+        SharingInputStream(InputStream in, List<Object> shared) throws IOException {
+            super(in);
+            this.shared = shared;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) {
+            return obj instanceof SharedReference ? shared.get(((SharedReference) obj).index) : obj;
+        }
+    }
+
+    private static final class SharedReference implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int index;
+
+        SharedReference(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package pws.editor;
 
+import assembly.Assembly;
 import assembly.AssemblyInterface;
 import machinery.StateMachine;
 import pws.PWSStateMachine;
+import pws.editor.semantics.SemanticsCache;
 
 import javax.swing.*;
 import java.awt.*;
@@ -90,6 +92,7 @@ public class AssemblyPanel extends JPanel {
                 }
             }
         }
+        invalidateSemantics();
         refreshList();
     }
 
@@ -114,8 +117,20 @@ public class AssemblyPanel extends JPanel {
                 "Sei sicuro di voler rimuovere la macchina con identificatore " + id + "?",
                 "Conferma", JOptionPane.YES_NO_OPTION);
         if(confirm == JOptionPane.YES_OPTION) {
-            assembly.getStateMachines().remove(id);
+            assembly.removeStateMachine(id);
+            invalidateSemantics();
             refreshList();
         }
     }
+
+    /**
+     * Machines were added or removed: cached guard semantics of this assembly are stale.
+     */
+    private void invalidateSemantics() {
+        if (assembly instanceof Assembly) {
+            SemanticsCache.shared().invalidateAssembly(((Assembly) assembly).getAssemblyId());
+        } else {
+            SemanticsCache.shared().clear();
+        }
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import assembly.Assembly;
 import assembly.AssemblyInterface;
 import editor.StateMachineEditor;
 import machinery.StateMachine;
+import pws.editor.semantics.SemanticsCache;
 
 import javax.swing.*;
 import java.awt.*;
@@ -103,6 +104,7 @@ public class PWSPanel extends JPanel {
             StateMachine newMachine = new StateMachine(name);
             assembly.addStateMachine(id, newMachine);
         }
+        invalidateSemantics();
         refreshList();
     }
 
@@ -127,8 +129,16 @@ public class PWSPanel extends JPanel {
                 "Conferma", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             // Rimuove solo il mapping corrispondente all'id selezionato
-            assembly.getStateMachines().remove(id);
+            assembly.removeStateMachine(id);
+            invalidateSemantics();
             refreshList();
         }
     }
+
+    /**
+     * Machines were added or removed: cached guard semantics of this assembly are stale.
+     */
+    private void invalidateSemantics() {
+        SemanticsCache.shared().invalidateAssembly(assembly.getAssemblyId());
+    }
 }
@@ -5,8 +5,6 @@ import pws.PWSStateMachine;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
 public class PWSStateMachineEditor extends StateMachineEditor {
 
@@ -21,16 +19,42 @@ public class PWSStateMachineEditor extends StateMachineEditor {
         JPanel toolbar = new JPanel();
         toolbar.setLayout(new FlowLayout(FlowLayout.LEFT));
         JButton updateSemanticButton = new JButton("Aggiorna semantica");
-        updateSemanticButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // Richiama il metodo recalculateSemantics sulla state machine
-                ((PWSStateMachine) stateMachine).recalculateSemantics();
-                statePanel.revalidate();
-                statePanel.repaint();
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        PWSStateMachinePanel pwsPanel = (PWSStateMachinePanel) statePanel;
+        updateSemanticButton.addActionListener(e -> {
+            // Durante il calcolo il pulsante lo annulla
+            SemanticsWorker current = pwsPanel.getSemanticsWorker();
+            if (current != null && !current.isDone()) {
+                current.cancel(true);
+                return;
             }
+            // Aggiorna la semantica in background, ricalcolando solo le parti toccate dalle modifiche
+            pwsPanel.updateSemanticsInBackground();
+        });
+        // Il pulsante e la barra seguono l'ultimo calcolo avviato, anche da un menu del pannello
+        pwsPanel.addPropertyChangeListener(PWSStateMachinePanel.SEMANTICS_WORKER_PROPERTY, evt -> {
+            SemanticsWorker worker = (SemanticsWorker) evt.getNewValue();
+            updateSemanticButton.setText("Annulla");
+            progressBar.setValue(0);
+            progressBar.setVisible(true);
+            worker.addPropertyChangeListener(workerEvt -> {
+                // Un calcolo sostituito da uno nuovo non tocca più il pulsante
+                if (worker != pwsPanel.getSemanticsWorker()) {
+                    return;
+                }
+                if ("progress".equals(workerEvt.getPropertyName())) {
+                    progressBar.setValue((Integer) workerEvt.getNewValue());
+                } else if ("state".equals(workerEvt.getPropertyName())
+                        && workerEvt.getNewValue() == SwingWorker.StateValue.DONE) {
+                    updateSemanticButton.setText("Aggiorna semantica");
+                    progressBar.setVisible(false);
+                }
+            });
         });
         toolbar.add(updateSemanticButton);
+        toolbar.add(progressBar);
         getContentPane().add(toolbar, BorderLayout.NORTH);
 
         revalidate();
@@ -24,7 +24,6 @@ import java.awt.font.TextAttribute;
 import java.awt.geom.Point2D;
 import java.awt.geom.QuadCurve2D;
 import java.text.AttributedString;
-import java.util.Iterator;
 import java.util.List;
 import java.io.File;
 import java.io.FileInputStream;
@@ -41,6 +40,11 @@ import java.awt.Stroke;
 public class PWSStateMachinePanel extends StateMachinePanel {
     /** Whether to render state‐semantics annotations at all */
     private boolean showStateAnnotations = false;
+    /** Bound property set to each new semantics computation, see {@link #updateSemanticsInBackground()}. */
+    public static final String SEMANTICS_WORKER_PROPERTY = "semanticsWorker";
+
+    /** The last semantics computation started, possibly done. */
+    private SemanticsWorker semanticsWorker;
 
     public PWSStateMachinePanel(PWSStateMachine stateMachine) {
         super(stateMachine);
@@ -51,6 +55,31 @@ public class PWSStateMachinePanel extends StateMachinePanel {
         // Mouse listeners are inherited from StateMachinePanel.
     }
 
+    /**
+     * Brings the semantics up to date in the background, cancelling the computation in progress if any.
+     * The new worker is announced through the {@link #SEMANTICS_WORKER_PROPERTY} property, so that whoever
+     * follows the progress can move to it whichever component started it.
+     * @return the worker, to follow its progress or cancel it
+     */
+    public SemanticsWorker updateSemanticsInBackground() {
+        SemanticsWorker previous = semanticsWorker;
+        // Replaced before cancelling: a cancelled worker is done at once, and must already look stale.
+        semanticsWorker = new SemanticsWorker((PWSStateMachine) stateMachine, this, true);
+        if (previous != null && !previous.isDone()) {
+            previous.cancel(true);
+        }
+        semanticsWorker.start();
+        firePropertyChange(SEMANTICS_WORKER_PROPERTY, previous, semanticsWorker);
+        return semanticsWorker;
+    }
+
+    /**
+     * @return the last semantics computation started, possibly done; null if none was
+     */
+    public SemanticsWorker getSemanticsWorker() {
+        return semanticsWorker;
+    }
+
     /**
      * Show or hide all state annotations in this panel.
      * @param show true = display annotations; false = hide them
@@ -618,7 +647,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
             JMenuItem toggleEnableItem = new JMenuItem(toggleText);
             toggleEnableItem.addActionListener(ae -> {
                 pt.setEnabled(!pt.isEnabled());
-                ((PWSStateMachine) stateMachine).recalculateSemantics();
+                updateSemanticsInBackground();
                 revalidate();
                 repaint();
             });
@@ -678,7 +707,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
             editItem.addActionListener(ae -> {
                 String newName = JOptionPane.showInputDialog(this, "Nuovo nome per lo stato:", state.getName());
                 if (newName != null && !newName.trim().isEmpty()) {
-                    ((machinery.State) state).setName(newName);
+                    stateMachine.renameState(state, newName);
                     repaint();
                 }
             });
@@ -739,48 +768,28 @@ public class PWSStateMachinePanel extends StateMachinePanel {
                             remove(pwsState.getAnnotation());
                         }
                     }
-                    // Remove the state from the data structure.
-                    stateMachine.getStates().remove(state);
-                    // Remove any transitions related to the state.
-                    Iterator<TransitionInterface> it = stateMachine.getTransitions().iterator();
-                    while (it.hasNext()) {
-                        TransitionInterface t = it.next();
-                        if (t.getSource() == state || t.getTarget() == state) {
-                            // For PWS, clear annotations if necessary
-                            if (state instanceof PWSState && t instanceof PWSTransition) {
-                                clearAnnotationsForTransition((PWSTransition) t);
-                            }
-                            // Remove t from the global transitions list
-                            it.remove();
-
-                            // Remove t from the source state's outgoing transitions
-                            StateInterface source = t.getSource();
-                            if (source != null && source.getOutgoingTransitions() != null) {
-                                source.getOutgoingTransitions().remove(t);
-                            }
-
-                            // Remove t from the target state's incoming transitions
-                            StateInterface target = t.getTarget();
-                            if (target != null && target.getIncomingTransitions() != null) {
-                                target.getIncomingTransitions().remove(t);
-                            }
-
-                            // Also remove t from the 'state' itself (both incoming and outgoing)
-                            if (state.getIncomingTransitions() != null) {
-                                state.getIncomingTransitions().remove(t);
-                            }
-                            if (state.getOutgoingTransitions() != null) {
-                                state.getOutgoingTransitions().remove(t);
+                    boolean removed = stateMachine.removeState(state);
+                    if (removed) {
+                        // Detach the related transitions from their states and annotations, then drop them.
+                        for (TransitionInterface t : stateMachine.getTransitions()) {
+                            if (t.getSource() == state || t.getTarget() == state) {
+                                // For PWS, clear annotations if necessary
+                                if (state instanceof PWSState && t instanceof PWSTransition) {
+                                    clearAnnotationsForTransition((PWSTransition) t);
+                                }
+                                // Remove t from the source state's outgoing transitions
+                                StateInterface source = t.getSource();
+                                if (source != null && source.getOutgoingTransitions() != null) {
+                                    source.getOutgoingTransitions().remove(t);
+                                }
+                                // Remove t from the target state's incoming transitions
+                                StateInterface target = t.getTarget();
+                                if (target != null && target.getIncomingTransitions() != null) {
+                                    target.getIncomingTransitions().remove(t);
+                                }
                             }
-
-//                            // Optional debugging: print if t is still associated with state
-//                            if (state.getIncomingTransitions() != null && state.getIncomingTransitions().contains(t)) {
-//                                System.out.println(t.toString() + " is still associated to state " + state.getName() + " in incoming transitions");
-//                            }
-//                            if (state.getOutgoingTransitions() != null && state.getOutgoingTransitions().contains(t)) {
-//                                System.out.println(t.toString() + " is still associated to state " + state.getName() + " in outgoing transitions");
-//                            }
                         }
+                        stateMachine.removeTransitionsIf(t -> t.getSource() == state || t.getTarget() == state);
                     }
                     repaint();
                 }
@@ -951,7 +960,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
             clearAnnotationsForTransition((PWSTransition) t);
         }
         // Rimuove la transizione dalla lista globale.
-        stateMachine.getTransitions().remove(t);
+        stateMachine.removeTransition(t);
 
         // Rimuove la transizione dalla lista delle transizioni in uscita dello stato sorgente.
         StateInterface source = t.getSource();
@@ -0,0 +1,87 @@
+package pws.editor;
+
+import pws.PWSStateMachine;
+import pws.SemanticsSnapshot;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Computes the semantics of a {@link PWSStateMachine} off the event dispatch thread.
+ *
+ * <p>The worker computes on a {@link SemanticsSnapshot} taken when it is created, so it must be created on the
+ * event dispatch thread, and the machine stays editable meanwhile. The result is stored in the machine and the
+ * annotations are refreshed once, on the event dispatch thread, when the computation completes. Workers run one
+ * at a time on a dedicated thread. {@link #cancel(boolean) cancel(true)} interrupts the computation, which stops
+ * at its next check and leaves the previous semantics in place. Progress goes from 0 to 100 through the
+ * {@code "progress"} bound property.</p>
+ */
+public class SemanticsWorker extends SwingWorker<Runnable, Void> {
+    private static final Logger logger = Logger.getLogger(SemanticsWorker.class.getName());
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pws-semantics");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final PWSStateMachine machine;
+    private final JComponent view;
+    private final SemanticsSnapshot snapshot;
+
+    /**
+     * @param machine     the machine whose semantics is computed
+     * @param view        the component showing the machine, repainted at the end
+     * @param incremental see {@link PWSStateMachine#snapshotSemantics(boolean)}
+     */
+    public SemanticsWorker(PWSStateMachine machine, JComponent view, boolean incremental) {
+        this.machine = machine;
+        this.view = view;
+        this.snapshot = machine.snapshotSemantics(incremental);
+    }
+
+    /**
+     * Queues this worker on the semantics thread; use instead of {@link #execute()}.
+     */
+    public void start() {
+        EXECUTOR.execute(this);
+    }
+
+    @Override
+    protected Runnable doInBackground() {
+        return snapshot.compute(this::setProgress);
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            logger.info("Semantics computation of '" + machine.getName() + "' cancelled.");
+            return;
+        }
+        try {
+            get().run();
+        } catch (CancellationException e) {
+            logger.info("Semantics computation of '" + machine.getName() + "' cancelled.");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                logger.info("Semantics computation of '" + machine.getName() + "' cancelled.");
+                return;
+            }
+            logger.log(Level.SEVERE, "Semantics computation of '" + machine.getName() + "' failed.", e.getCause());
+            JOptionPane.showMessageDialog(view, "Errore nel calcolo della semantica: " + e.getCause(),
+                    "Semantica", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        view.revalidate();
+        view.repaint();
+    }
+}
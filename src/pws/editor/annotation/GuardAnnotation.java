@@ -2,6 +2,7 @@ package pws.editor.annotation;
 
 import assembly.Assembly;
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SemanticsCache;
 import smalgebra.SMProposition;
 import smalgebra.TrueProposition;
 
@@ -41,6 +42,7 @@ public class GuardAnnotation extends Annotation<SMProposition> {
                 for (SMProposition guardOption : (List<SMProposition>) list) {
                     JMenuItem item = new JMenuItem(guardOption.toString());
                     item.addActionListener(ev -> {
+                        SemanticsCache.shared().invalidate(content);
                         setContent(guardOption);
                         updateCallback.accept(guardOption);
                         revalidate();
@@ -57,6 +59,7 @@ public class GuardAnnotation extends Annotation<SMProposition> {
             JMenuItem removeItem = new JMenuItem("Rimuovi guardia");
             removeItem.addActionListener(ev -> {
                 SMProposition defaultGuard = new TrueProposition();
+                SemanticsCache.shared().invalidate(content);
                 setContent(defaultGuard);
                 updateCallback.accept(defaultGuard);
                 repaint();
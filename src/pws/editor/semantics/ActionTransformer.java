@@ -0,0 +1,123 @@
+package pws.editor.semantics;
+
+import assembly.Action;
+import assembly.ActionList;
+import assembly.Assembly;
+import machinery.StateMachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The actions of a transition composed into one image, to apply them to a Semantics in a single pass per machine.
+ *
+ * <p>Applying the actions one after the other with {@link Semantics#transformByMachineEvent(String, String, Assembly)}
+ * looks up the triggered transitions and rewrites the whole cover once per action. Here the moves of the actions on
+ * the same machine are composed once: each state of the machine is mapped to the states the sequence of events can
+ * lead it to. Actions on different machines change different states and can be applied in any order, so
+ * {@link #apply(Semantics)} rewrites the cover once per machine that actually moves.</p>
+ *
+ * <p>A transformer reflects the machines at the time it is built and must be built again when the assembly changes
+ * structure (see {@link Assembly#getVersion()}).</p>
+ */
+public final class ActionTransformer {
+    /** For each machine, in the order of the first action on it: its states in the universe and its moves. */
+    private final Map<String, Set<String>> domains = new LinkedHashMap<>();
+    private final Map<String, Map<String, List<String>>> moves = new LinkedHashMap<>();
+
+    private ActionTransformer() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if an action names a machine that is not in the assembly, or an event that
+     *                                  triggers no transition of its machine, as
+     *                                  {@link Semantics#transformByMachineEvent(String, String, Assembly)}
+     */
+    public static ActionTransformer of(ActionList actions, Assembly assembly) {
+        ActionTransformer result = new ActionTransformer();
+        Map<String, Map<String, Set<String>>> relations = new LinkedHashMap<>();
+        for (Action a : actions) {
+            String machineId = a.getMachineId();
+            StateMachine machine = assembly.getStateMachines().get(machineId);
+            if (machine == null) {
+                throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
+            }
+            Map<String, List<String>> step = machine.getEventMoves(a.getEvent());
+            if (step.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "No transition triggered by event " + a.getEvent() + " found in machine " + machineId);
+            }
+            Set<String> domain = result.domains.computeIfAbsent(machineId, k -> Semantics.domainOf(machine));
+            Map<String, Set<String>> relation = relations.computeIfAbsent(machineId, k -> identity(domain));
+            for (Map.Entry<String, List<String>> e : step.entrySet()) {
+                relation.computeIfAbsent(e.getKey(), k -> new LinkedHashSet<>(List.of(k)));
+                for (String t : e.getValue()) {
+                    relation.computeIfAbsent(t, k -> new LinkedHashSet<>(List.of(k)));
+                }
+            }
+            for (Map.Entry<String, Set<String>> e : relation.entrySet()) {
+                Set<String> next = new LinkedHashSet<>();
+                for (String state : e.getValue()) {
+                    List<String> targets = step.get(state);
+                    if (targets == null) {
+                        next.add(state);
+                        continue;
+                    }
+                    // A source outside the universe is not removed (see Semantics#image)
+                    if (!domain.contains(state)) {
+                        next.add(state);
+                    }
+                    next.addAll(targets);
+                }
+                e.setValue(next);
+            }
+        }
+        for (Map.Entry<String, Map<String, Set<String>>> r : relations.entrySet()) {
+            Map<String, List<String>> m = new LinkedHashMap<>();
+            for (Map.Entry<String, Set<String>> e : r.getValue().entrySet()) {
+                Set<String> targets = e.getValue();
+                if (targets.size() != 1 || !targets.contains(e.getKey())) {
+                    m.put(e.getKey(), Collections.unmodifiableList(new ArrayList<>(targets)));
+                }
+            }
+            if (!m.isEmpty()) {
+                result.moves.put(r.getKey(), Collections.unmodifiableMap(m));
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Set<String>> identity(Set<String> domain) {
+        Map<String, Set<String>> relation = new LinkedHashMap<>();
+        for (String state : domain) {
+            relation.put(state, new LinkedHashSet<>(List.of(state)));
+        }
+        return relation;
+    }
+
+    /**
+     * @return true if the actions leave every configuration as it is
+     */
+    public boolean isIdentity() {
+        return moves.isEmpty();
+    }
+
+    /**
+     * @return the image of the Semantics through the actions; the Semantics itself if nothing moves
+     */
+    public Semantics apply(Semantics s) {
+        Semantics result = s;
+        for (Map.Entry<String, Map<String, List<String>>> e : moves.entrySet()) {
+            Semantics next = result.image(e.getKey(), domains.get(e.getKey()), e.getValue());
+            if (next != null) {
+                result = next;
+            }
+        }
+        return result;
+    }
+}
@@ -8,14 +8,46 @@ import java.io.Serializable;
 import java.util.*;
 
 public class Configuration implements Serializable {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 3197554229359899363L;
+
     private String assemblyId;
     private List<BasicStateProposition> propositions;
 
+    /**
+     * Packed form of the propositions over the assembly's {@link SymbolTable}: entry i is the state index
+     * of machine i, or {@link SymbolTable#NONE} if machine i is unconstrained. Trailing unconstrained
+     * machines are trimmed. Built lazily and dropped whenever the propositions change; volatile, and written
+     * after {@link #packable}, so that configurations shared by the workers of a parallel scan always see a
+     * complete packed form.
+     */
+    private transient volatile int[] packed;
+    /** False when two propositions constrain the same machine, which the packed form cannot express. */
+    private transient boolean packable;
+    /** Cached hash code, 0 until computed; a single field, so racy initialization is harmless. */
+    private transient int hash;
+    /**
+     * The table {@link #packed} refers to. Holding it keeps the table alive for as long as some configuration
+     * uses its indices (see {@link SymbolTable#forAssembly(String)}).
+     */
+    private transient SymbolTable table;
+
     public Configuration(String assemblyId) {
         this.assemblyId = assemblyId;
         this.propositions = new ArrayList<>();
     }
 
+    /**
+     * Builds a configuration from propositions already sorted by machine id, with a precomputed packed form.
+     */
+    private Configuration(SymbolTable table, List<BasicStateProposition> sorted, int[] packed) {
+        this.assemblyId = table.getAssemblyId();
+        this.propositions = sorted;
+        this.table = table;
+        this.packed = packed;
+        this.packable = true;
+    }
+
     public String getAssemblyId() {
         return assemblyId;
     }
@@ -30,6 +62,8 @@ public class Configuration implements Serializable {
             index++;
         }
         propositions.add(index, bsp);
+        packed = null;
+        hash = 0;
     }
 
     public List<BasicStateProposition> getBasicStatePropositions() {
@@ -42,16 +76,101 @@ public class Configuration implements Serializable {
      */
     public static Configuration fromBasicStatePropositions(String assemblyId, List<BasicStateProposition> props) {
         Configuration config = new Configuration(assemblyId);
-        for (BasicStateProposition bsp : props) {
-            config.addBasicStateProposition(bsp);
-        }
+        // Un unico ordinamento stabile sulla lista rovesciata: a parità di machineId l'ordine è quello
+        // che si otterrebbe inserendo le proposizioni una alla volta con addBasicStateProposition.
+        List<BasicStateProposition> sorted = new ArrayList<>(props);
+        Collections.reverse(sorted);
+        sorted.sort(Comparator.comparing(BasicStateProposition::getMachineId));
+        config.propositions = sorted;
         return config;
     }
 
+    /**
+     * Builds a configuration from its packed form over the assembly's {@link SymbolTable}.
+     */
+    static Configuration fromPackedStates(String assemblyId, int[] packedStates) {
+        SymbolTable table = SymbolTable.forAssembly(assemblyId);
+        int length = packedStates.length;
+        while (length > 0 && packedStates[length - 1] == SymbolTable.NONE) {
+            length--;
+        }
+        List<BasicStateProposition> props = new ArrayList<>();
+        for (int m = 0; m < length; m++) {
+            if (packedStates[m] != SymbolTable.NONE) {
+                props.add(new BasicStateProposition(table.machineName(m), table.stateName(m, packedStates[m])));
+            }
+        }
+        props.sort(Comparator.comparing(BasicStateProposition::getMachineId));
+        return new Configuration(table, props, Arrays.copyOf(packedStates, length));
+    }
+
+    /**
+     * Packed form used by {@link SubsumptionIndex}; the returned array must not be modified.
+     *
+     * @return the state index of each machine ({@link SymbolTable#NONE} if unconstrained),
+     *         or null if two propositions constrain the same machine
+     */
+    int[] packedStates() {
+        return packed();
+    }
+
+    /** The symbol table of the assembly, looked up on first use. */
+    private SymbolTable table() {
+        SymbolTable t = table;
+        if (t == null) {
+            t = SymbolTable.forAssembly(assemblyId);
+            table = t;
+        }
+        return t;
+    }
+
+    /**
+     * @return the configuration as a state vector over the assembly's {@link SymbolTable}, as expected by
+     *         {@link SMProposition#evaluate(int[], SymbolTable)}, or null if two propositions constrain the same
+     *         machine; the returned array must not be modified
+     */
+    public int[] stateVector() {
+        return packed();
+    }
+
+    /**
+     * @return the packed form of this configuration, or null if it is not packable
+     */
+    private int[] packed() {
+        int[] p = packed;
+        if (p == null) {
+            SymbolTable table = table();
+            int length = 0;
+            int[] machines = new int[propositions.size()];
+            int[] states = new int[propositions.size()];
+            for (int i = 0; i < machines.length; i++) {
+                BasicStateProposition bsp = propositions.get(i);
+                machines[i] = table.internMachine(bsp.getMachineId());
+                states[i] = table.internState(bsp.getMachineId(), bsp.getStateName());
+                length = Math.max(length, machines[i] + 1);
+            }
+            p = new int[length];
+            Arrays.fill(p, SymbolTable.NONE);
+            boolean ok = true;
+            for (int i = 0; i < machines.length; i++) {
+                ok &= p[machines[i]] == SymbolTable.NONE;
+                p[machines[i]] = states[i];
+            }
+            packable = ok;
+            packed = p;
+        }
+        return packable ? p : null;
+    }
+
     public Configuration intersect(Configuration other) {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Assemblies do not match.");
         }
+        int[] a = this.packed();
+        int[] b = other.packed();
+        if (a != null && b != null) {
+            return intersectPacked(other, a, b);
+        }
         // Merge constraints from both configurations
         Map<String, BasicStateProposition> resultMap = new HashMap<>();
         // Add all propositions from this configuration
@@ -75,10 +194,59 @@ public class Configuration implements Serializable {
         return Configuration.fromBasicStatePropositions(this.assemblyId, resultList);
     }
 
+    /**
+     * Intersection on the packed forms: the propositions of both (sorted) lists are merged in one pass.
+     */
+    private Configuration intersectPacked(Configuration other, int[] a, int[] b) {
+        int[] result = a.length >= b.length ? a.clone() : b.clone();
+        int[] shorter = a.length >= b.length ? b : a;
+        for (int i = 0; i < shorter.length; i++) {
+            if (shorter[i] == SymbolTable.NONE) {
+                continue;
+            }
+            if (result[i] == SymbolTable.NONE) {
+                result[i] = shorter[i];
+            } else if (result[i] != shorter[i]) {
+                // Conflict: different constraints for the same machine, intersection is undefined.
+                return null;
+            }
+        }
+        List<BasicStateProposition> left = this.propositions;
+        List<BasicStateProposition> right = other.propositions;
+        List<BasicStateProposition> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            int cmp = left.get(i).getMachineId().compareTo(right.get(j).getMachineId());
+            if (cmp < 0) {
+                merged.add(left.get(i++));
+            } else if (cmp > 0) {
+                merged.add(right.get(j++));
+            } else {
+                merged.add(left.get(i++));
+                j++;
+            }
+        }
+        while (i < left.size()) merged.add(left.get(i++));
+        while (j < right.size()) merged.add(right.get(j++));
+        return new Configuration(table(), merged, result);
+    }
+
     public boolean implies(Configuration other) {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Assemblies do not match.");
         }
+        int[] a = this.packed();
+        int[] b = other.packed();
+        if (a != null && b != null) {
+            // Ogni vincolo di 'other' deve comparire in 'this' con lo stesso stato.
+            for (int i = 0; i < b.length; i++) {
+                if (b[i] != SymbolTable.NONE && (i >= a.length || a[i] != b[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
         // Per ogni vincolo presente in 'other', verifico che anche 'this' lo contenga con lo stesso valore.
         for (BasicStateProposition bspOther : other.getBasicStatePropositions()) {
             boolean found = false;
@@ -108,12 +276,7 @@ public class Configuration implements Serializable {
      * @return true if this configuration implies at least one configuration in s; false otherwise.
      */
     public boolean implies(Semantics s) {
-        for (Configuration conf : s.getConfigurations()) {
-            if (this.implies(conf)) {
-                return true;
-            }
-        }
-        return false;
+        return s.subsumes(this);
     }
 
     @Override
@@ -121,13 +284,25 @@ public class Configuration implements Serializable {
         if (this == o) return true;
         if (!(o instanceof Configuration)) return false;
         Configuration that = (Configuration) o;
-        return Objects.equals(assemblyId, that.assemblyId) &&
-                Objects.equals(propositions, that.propositions);
+        if (this.hashCode() != that.hashCode() || !Objects.equals(assemblyId, that.assemblyId)) {
+            return false;
+        }
+        int[] a = this.packed();
+        int[] b = that.packed();
+        if (a != null && b != null) {
+            return Arrays.equals(a, b);
+        }
+        return Objects.equals(propositions, that.propositions);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(assemblyId, propositions);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(assemblyId, propositions);
+            hash = h;
+        }
+        return h;
     }
 
 //    @Override
@@ -180,6 +355,11 @@ public class Configuration implements Serializable {
      * @return true if a BasicStateProposition for machineId is present; false otherwise.
      */
     public boolean contains(String machineId) {
+        int[] p = packed();
+        if (p != null) {
+            int m = table().machineIndexOf(machineId);
+            return m != SymbolTable.NONE && m < p.length && p[m] != SymbolTable.NONE;
+        }
         for (BasicStateProposition bsp : propositions) {
             if (bsp.getMachineId().equals(machineId)) {
                 return true;
@@ -196,6 +376,13 @@ public class Configuration implements Serializable {
      * @return The state name, or null if not present.
      */
     public String getStateName(String machineId) {
+        int[] p = packed();
+        if (p != null) {
+            SymbolTable table = table();
+            int m = table.machineIndexOf(machineId);
+            return m == SymbolTable.NONE || m >= p.length || p[m] == SymbolTable.NONE
+                    ? null : table.stateName(m, p[m]);
+        }
         for (BasicStateProposition bsp : propositions) {
             if (bsp.getMachineId().equals(machineId)) {
                 return bsp.getStateName();
@@ -214,6 +401,36 @@ public class Configuration implements Serializable {
      * @return A new Configuration with the updated constraint.
      */
     public Configuration replaceConstraint(String machineId, String newState) {
+        int[] p = packed();
+        if (p != null) {
+            SymbolTable table = table();
+            int m = table.internMachine(machineId);
+            int[] result = Arrays.copyOf(p, Math.max(p.length, m + 1));
+            if (m >= p.length) {
+                Arrays.fill(result, p.length, result.length, SymbolTable.NONE);
+            }
+            result[m] = table.internState(machineId, newState);
+            BasicStateProposition replacement = new BasicStateProposition(machineId, newState);
+            List<BasicStateProposition> newProps = new ArrayList<>(propositions.size() + 1);
+            boolean placed = false;
+            for (BasicStateProposition bsp : propositions) {
+                int cmp = bsp.getMachineId().compareTo(machineId);
+                if (cmp == 0) {
+                    newProps.add(replacement);
+                    placed = true;
+                    continue;
+                }
+                if (cmp > 0 && !placed) {
+                    newProps.add(replacement);
+                    placed = true;
+                }
+                newProps.add(bsp);
+            }
+            if (!placed) {
+                newProps.add(replacement);
+            }
+            return new Configuration(table(), newProps, result);
+        }
         List<BasicStateProposition> newProps = new ArrayList<>();
         boolean replaced = false;
         for (BasicStateProposition bsp : propositions) {
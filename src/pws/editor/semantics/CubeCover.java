@@ -0,0 +1,316 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cube calculus on packed {@link Configuration}s: complement and difference of covers computed with the
+ * disjoint sharp operator, and containment of covers computed by tautology checking, so that their cost
+ * depends on the size of the covers rather than on the size of the universe.
+ *
+ * <p>By default the universe is the one of {@link Assembly#generateUniverse()}: each machine with at least
+ * one non-pseudo state ranges over those states. When pseudostates are included, every machine ranges over
+ * all of its states, as in {@link assembly.AssemblyGenerator#generateAllAssemblies(Assembly)}. A cube that
+ * constrains a machine outside the universe, or a machine to a state outside its domain, denotes no
+ * configuration of the universe and is ignored.</p>
+ */
+final class CubeCover {
+    private final String assemblyId;
+    private final SymbolTable table;
+    /** For each machine index, the state indices of its domain; null if the machine is not in the universe. */
+    private final int[][] domains;
+    /** True if some machine has no state at all, so that the universe is empty. */
+    private final boolean emptyUniverse;
+
+    CubeCover(Assembly assembly) {
+        this(assembly, false);
+    }
+
+    CubeCover(Assembly assembly, boolean includePseudoStates) {
+        this.assemblyId = assembly.getAssemblyId();
+        this.table = SymbolTable.forAssembly(assemblyId);
+        List<int[]> byMachine = new ArrayList<>();
+        boolean empty = false;
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            String machineId = entry.getKey();
+            List<Integer> states = new ArrayList<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (includePseudoStates || !"PseudoState".equals(s.getName())) {
+                    int state = table.internState(machineId, s.getName());
+                    if (!states.contains(state)) {
+                        states.add(state);
+                    }
+                }
+            }
+            if (states.isEmpty()) {
+                // Without pseudostates such a machine is left out of the universe (see Assembly.generateUniverse);
+                // with them, it has no possible current state and no assembly can be generated.
+                empty |= includePseudoStates;
+                continue;
+            }
+            int machine = table.internMachine(machineId);
+            while (byMachine.size() <= machine) {
+                byMachine.add(null);
+            }
+            byMachine.set(machine, states.stream().mapToInt(Integer::intValue).toArray());
+        }
+        domains = byMachine.toArray(new int[0][]);
+        emptyUniverse = empty;
+    }
+
+    /**
+     * @return the packed cubes of s, padded to a common length, or null if some cube cannot be packed
+     */
+    private List<int[]> pack(Semantics s) {
+        List<int[]> cubes = new ArrayList<>();
+        for (Configuration c : s.getConfigurations()) {
+            int[] p = c.packedStates();
+            if (p == null) {
+                return null;
+            }
+            cubes.add(p);
+        }
+        return cubes;
+    }
+
+    private int width() {
+        return Math.max(table.machineCount(), domains.length);
+    }
+
+    private static int[] pad(int[] p, int width) {
+        if (p.length >= width) {
+            return p;
+        }
+        int[] padded = Arrays.copyOf(p, width);
+        Arrays.fill(padded, p.length, width, SymbolTable.NONE);
+        return padded;
+    }
+
+    /**
+     * @return true if the cube denotes at least one configuration of the universe
+     */
+    private boolean inUniverse(int[] cube) {
+        for (int i = 0; i < cube.length; i++) {
+            if (cube[i] == SymbolTable.NONE) {
+                continue;
+            }
+            if (i >= domains.length || domains[i] == null) {
+                return false;
+            }
+            boolean found = false;
+            for (int s : domains[i]) {
+                found |= s == cube[i];
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Disjoint sharp: adds to out pairwise disjoint cubes whose union is r minus c.
+     */
+    private void sharp(int[] r, int[] c, List<int[]> out) {
+        for (int i = 0; i < c.length; i++) {
+            if (c[i] != SymbolTable.NONE && r[i] != SymbolTable.NONE && r[i] != c[i]) {
+                // r and c are disjoint.
+                out.add(r);
+                return;
+            }
+        }
+        int[] current = r;
+        for (int i = 0; i < c.length; i++) {
+            if (c[i] == SymbolTable.NONE || r[i] != SymbolTable.NONE) {
+                continue;
+            }
+            // Split r on machine i: every other state goes out, the current cube keeps c's state.
+            for (int s : domains[i]) {
+                if (s != c[i]) {
+                    int[] piece = current.clone();
+                    piece[i] = s;
+                    out.add(piece);
+                }
+            }
+            current = current.clone();
+            current[i] = c[i];
+        }
+        // What is left of r is contained in c.
+    }
+
+    /**
+     * @return cubes covering minuend minus every cube of subtrahend, or null if a cube cannot be packed
+     */
+    private List<int[]> subtract(List<int[]> minuend, List<int[]> subtrahend) {
+        int width = width();
+        List<int[]> result = new ArrayList<>();
+        for (int[] r : minuend) {
+            int[] padded = pad(r, width);
+            if (inUniverse(padded)) {
+                result.add(padded);
+            }
+        }
+        for (int[] c : subtrahend) {
+            int[] padded = pad(c, width);
+            if (!inUniverse(padded)) {
+                continue;
+            }
+            List<int[]> next = new ArrayList<>(result.size());
+            for (int[] r : result) {
+                sharp(r, padded, next);
+            }
+            result = next;
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Semantics toSemantics(List<int[]> cubes) {
+        Semantics result = new Semantics(assemblyId);
+        for (int[] cube : cubes) {
+            result.addConfiguration(Configuration.fromPackedStates(assemblyId, cube));
+        }
+        return result;
+    }
+
+    /**
+     * @return the complement of s, or null if s contains a configuration that cannot be packed
+     */
+    Semantics complement(Semantics s) {
+        List<int[]> cubes = pack(s);
+        if (cubes == null) {
+            return null;
+        }
+        List<int[]> top = new ArrayList<>();
+        top.add(new int[0]);
+        return toSemantics(subtract(top, cubes));
+    }
+
+    /**
+     * @return a minus b, or null if one of them contains a configuration that cannot be packed
+     */
+    Semantics difference(Semantics a, Semantics b) {
+        List<int[]> minuend = pack(a);
+        List<int[]> subtrahend = pack(b);
+        if (minuend == null || subtrahend == null) {
+            return null;
+        }
+        return toSemantics(subtract(minuend, subtrahend));
+    }
+
+    /**
+     * Decides whether every configuration of a is also in b, without computing any complement: each cube
+     * of a must be covered by the cubes of b, i.e. the cofactor of b with respect to the cube must be a
+     * tautology.
+     *
+     * @return the result, or null if one of the covers contains a configuration that cannot be packed
+     */
+    Boolean contains(Semantics b, Semantics a) {
+        List<int[]> small = pack(a);
+        List<int[]> big = pack(b);
+        if (small == null || big == null) {
+            return null;
+        }
+        if (emptyUniverse) {
+            return true;
+        }
+        int width = width();
+        List<int[]> cover = new ArrayList<>();
+        for (int[] d : big) {
+            int[] padded = pad(d, width);
+            if (inUniverse(padded)) {
+                cover.add(padded);
+            }
+        }
+        for (int[] c : small) {
+            int[] padded = pad(c, width);
+            if (inUniverse(padded) && !isTautology(cofactor(cover, padded))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the cubes of cover that intersect c, with the machines constrained by c released
+     */
+    private static List<int[]> cofactor(List<int[]> cover, int[] c) {
+        List<int[]> result = new ArrayList<>();
+        for (int[] d : cover) {
+            int[] reduced = null;
+            boolean disjoint = false;
+            for (int i = 0; i < c.length && !disjoint; i++) {
+                if (c[i] == SymbolTable.NONE || d[i] == SymbolTable.NONE) {
+                    continue;
+                }
+                if (d[i] != c[i]) {
+                    disjoint = true;
+                } else {
+                    if (reduced == null) {
+                        reduced = d.clone();
+                    }
+                    reduced[i] = SymbolTable.NONE;
+                }
+            }
+            if (!disjoint) {
+                result.add(reduced != null ? reduced : d);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the cubes cover the whole universe
+     */
+    private boolean isTautology(List<int[]> cubes) {
+        if (cubes.isEmpty()) {
+            return false;
+        }
+        // Pick the most constrained machine; a cube constraining nothing is the universe itself.
+        int width = cubes.get(0).length;
+        int[] counts = new int[width];
+        for (int[] d : cubes) {
+            boolean universal = true;
+            for (int i = 0; i < width; i++) {
+                if (d[i] != SymbolTable.NONE) {
+                    counts[i]++;
+                    universal = false;
+                }
+            }
+            if (universal) {
+                return true;
+            }
+        }
+        int split = 0;
+        for (int i = 1; i < width; i++) {
+            if (counts[i] > counts[split]) {
+                split = i;
+            }
+        }
+        // Shannon expansion on the chosen machine: every branch must be a tautology.
+        for (int s : domains[split]) {
+            List<int[]> branch = new ArrayList<>();
+            for (int[] d : cubes) {
+                if (d[split] == SymbolTable.NONE) {
+                    branch.add(d);
+                } else if (d[split] == s) {
+                    int[] reduced = d.clone();
+                    reduced[split] = SymbolTable.NONE;
+                    branch.add(reduced);
+                }
+            }
+            if (!isTautology(branch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
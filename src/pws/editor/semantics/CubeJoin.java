@@ -0,0 +1,138 @@
+package pws.editor.semantics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Pairwise intersection of two covers computed as a join on one machine, so that pairs of configurations that
+ * constrain that machine to different states are never tried.
+ *
+ * <p>The machine is chosen by counting, over the packed configurations, how many pairs each candidate leaves:
+ * a configuration fixing the machine only meets the configurations of the other cover fixing it to the same state
+ * or leaving it free. The other cover is then bucketed by state index, and each configuration of the first cover
+ * visits its bucket and the free ones. When no machine prunes anything, every pair is tried as before.</p>
+ */
+final class CubeJoin {
+    private CubeJoin() {
+    }
+
+    /**
+     * Passes the non-empty intersection of every compatible pair to out.
+     *
+     * @return false, having passed nothing, if some configuration cannot be packed
+     */
+    static boolean intersect(Collection<Configuration> left, Collection<Configuration> right,
+                             Consumer<Configuration> out) {
+        List<Configuration> a = new ArrayList<>(left);
+        List<Configuration> b = new ArrayList<>(right);
+        int width = 0;
+        for (List<Configuration> side : List.of(a, b)) {
+            for (Configuration c : side) {
+                int[] p = c.packedStates();
+                if (p == null) {
+                    return false;
+                }
+                width = Math.max(width, p.length);
+            }
+        }
+        if (a.isEmpty() || b.isEmpty()) {
+            return true;
+        }
+
+        int machine = selectMachine(a, b, width);
+        if (machine == SymbolTable.NONE) {
+            for (Configuration x : a) {
+                for (Configuration y : b) {
+                    emit(x, y, out);
+                }
+            }
+            return true;
+        }
+
+        List<List<Configuration>> buckets = new ArrayList<>();
+        List<Configuration> free = new ArrayList<>();
+        for (Configuration y : b) {
+            int s = stateOf(y, machine);
+            if (s == SymbolTable.NONE) {
+                free.add(y);
+                continue;
+            }
+            while (buckets.size() <= s) {
+                buckets.add(null);
+            }
+            if (buckets.get(s) == null) {
+                buckets.set(s, new ArrayList<>());
+            }
+            buckets.get(s).add(y);
+        }
+        for (Configuration x : a) {
+            int s = stateOf(x, machine);
+            if (s == SymbolTable.NONE) {
+                for (Configuration y : b) {
+                    emit(x, y, out);
+                }
+                continue;
+            }
+            if (s < buckets.size() && buckets.get(s) != null) {
+                for (Configuration y : buckets.get(s)) {
+                    emit(x, y, out);
+                }
+            }
+            for (Configuration y : free) {
+                emit(x, y, out);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the machine leaving the fewest pairs to try, or {@link SymbolTable#NONE} if none leaves fewer than all
+     */
+    private static int selectMachine(List<Configuration> a, List<Configuration> b, int width) {
+        long best = (long) a.size() * b.size();
+        int selected = SymbolTable.NONE;
+        for (int m = 0; m < width; m++) {
+            int[] fixedInB = new int[8];
+            int freeInB = 0;
+            for (Configuration y : b) {
+                int s = stateOf(y, m);
+                if (s == SymbolTable.NONE) {
+                    freeInB++;
+                } else {
+                    if (s >= fixedInB.length) {
+                        fixedInB = Arrays.copyOf(fixedInB, Math.max(s + 1, 2 * fixedInB.length));
+                    }
+                    fixedInB[s]++;
+                }
+            }
+            if (freeInB == b.size()) {
+                continue;
+            }
+            long pairs = 0;
+            for (Configuration x : a) {
+                int s = stateOf(x, m);
+                pairs += s == SymbolTable.NONE ? b.size() : (s < fixedInB.length ? fixedInB[s] : 0) + freeInB;
+            }
+            if (pairs < best) {
+                best = pairs;
+                selected = m;
+            }
+        }
+        return selected;
+    }
+
+    private static int stateOf(Configuration c, int machine) {
+        int[] p = c.packedStates();
+        return machine < p.length ? p[machine] : SymbolTable.NONE;
+    }
+
+    private static void emit(Configuration x, Configuration y, Consumer<Configuration> out) {
+        Configuration z = x.intersect(y);
+        if (z != null) {
+            out.accept(z);
+        }
+    }
+}
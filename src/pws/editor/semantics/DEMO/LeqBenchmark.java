@@ -0,0 +1,88 @@
+// ================================
+// File: LeqBenchmark.java
+// ================================
+package pws.editor.semantics.DEMO;
+
+import assembly.Assembly;
+import machinery.State;
+import machinery.StateMachine;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import smalgebra.BasicStateProposition;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the two implementations of Semantics implication:
+ * impliesTestUniversal, which evaluates both operands over every cloned assembly, and
+ * impliesCover, the cube-containment check used by LEQ.
+ *
+ * Usage: LeqBenchmark [machines] [statesPerMachine] [pairs]
+ */
+public class LeqBenchmark {
+
+    public static void main(String[] args) {
+        int machines = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int states = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        Assembly assembly = buildAssembly(machines, states);
+        Random random = new Random(42);
+        List<Semantics[]> operands = new ArrayList<>();
+        for (int i = 0; i < pairs; i++) {
+            Semantics a = randomCover(assembly, machines, states, random);
+            Semantics b = randomCover(assembly, machines, states, random);
+            // Half of the pairs are true implications, to exercise both outcomes.
+            operands.add(new Semantics[]{i % 2 == 0 ? a.AND(b) : a, b});
+        }
+
+        long start = System.nanoTime();
+        List<Boolean> universal = new ArrayList<>();
+        for (Semantics[] pair : operands) {
+            universal.add(pair[0].impliesTestUniversal(pair[1], assembly));
+        }
+        long universalTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Boolean> cover = new ArrayList<>();
+        for (Semantics[] pair : operands) {
+            cover.add(pair[0].impliesCover(pair[1], assembly));
+        }
+        long coverTime = System.nanoTime() - start;
+
+        System.out.println("Machines: " + machines + ", states per machine: " + states + ", pairs: " + pairs);
+        System.out.printf("impliesTestUniversal: %.2f ms%n", universalTime / 1e6);
+        System.out.printf("impliesCover:         %.2f ms%n", coverTime / 1e6);
+        System.out.println("Same results: " + universal.equals(cover));
+    }
+
+    private static Assembly buildAssembly(int machines, int states) {
+        Assembly assembly = new Assembly("LeqBenchmark");
+        for (int m = 0; m < machines; m++) {
+            StateMachine machine = new StateMachine("M" + m);
+            for (int s = 0; s < states; s++) {
+                machine.addState(new State("S" + s, new Point(0, 0)));
+            }
+            assembly.addStateMachine("m" + m, machine);
+        }
+        return assembly;
+    }
+
+    private static Semantics randomCover(Assembly assembly, int machines, int states, Random random) {
+        Semantics semantics = new Semantics(assembly.getAssemblyId());
+        int cubes = 1 + random.nextInt(8);
+        for (int i = 0; i < cubes; i++) {
+            List<BasicStateProposition> props = new ArrayList<>();
+            for (int m = 0; m < machines; m++) {
+                if (random.nextInt(3) == 0) {
+                    props.add(new BasicStateProposition("m" + m, "S" + random.nextInt(states)));
+                }
+            }
+            semantics.addConfiguration(Configuration.fromBasicStatePropositions(assembly.getAssemblyId(), props));
+        }
+        return semantics;
+    }
+}
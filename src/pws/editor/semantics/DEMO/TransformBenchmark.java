@@ -0,0 +1,145 @@
+// ================================
+// File: TransformBenchmark.java
+// ================================
+package pws.editor.semantics.DEMO;
+
+import assembly.Assembly;
+import machinery.State;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import smalgebra.BasicStateProposition;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the two implementations of Semantics.transformByMachineEvent:
+ * the previous one, which removes the domain of the moves with AND(domain.NOT(assembly)) and adds the codomain,
+ * and the current one, which rewrites the cover cube by cube.
+ * Results are compared as sets of configurations of the universe used by NOT, where pseudostates are left out:
+ * the difference between them must be empty in both directions.
+ * Some transitions leave the pseudostate, and some cubes fix a machine to it.
+ *
+ * Usage: TransformBenchmark [machines] [statesPerMachine] [transforms]
+ */
+public class TransformBenchmark {
+
+    private static final int EVENTS = 3;
+
+    public static void main(String[] args) {
+        int machines = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int states = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int transforms = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        Random random = new Random(42);
+        Assembly assembly = buildAssembly(machines, states, random);
+        List<Semantics> operands = new ArrayList<>();
+        List<String> machineIds = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < transforms; i++) {
+            String machineId = "m" + random.nextInt(machines);
+            String event = "e" + random.nextInt(EVENTS);
+            if (assembly.getStateMachines().get(machineId).getTransitionsTriggeredBy(event).isEmpty()) {
+                continue;
+            }
+            operands.add(randomCover(assembly, machines, states, random));
+            machineIds.add(machineId);
+            events.add(event);
+        }
+
+        long start = System.nanoTime();
+        List<Semantics> complement = new ArrayList<>();
+        for (int i = 0; i < operands.size(); i++) {
+            complement.add(transformByComplement(operands.get(i), machineIds.get(i), events.get(i), assembly));
+        }
+        long complementTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Semantics> image = new ArrayList<>();
+        for (int i = 0; i < operands.size(); i++) {
+            image.add(operands.get(i).transformByMachineEvent(machineIds.get(i), events.get(i), assembly));
+        }
+        long imageTime = System.nanoTime() - start;
+
+        boolean same = true;
+        for (int i = 0; i < operands.size(); i++) {
+            same &= complement.get(i).DIFF(image.get(i), assembly).ISEMPTY()
+                    && image.get(i).DIFF(complement.get(i), assembly).ISEMPTY();
+        }
+
+        System.out.println("Machines: " + machines + ", states per machine: " + states
+                + ", transforms: " + operands.size());
+        System.out.printf("AND(domain.NOT): %.2f ms%n", complementTime / 1e6);
+        System.out.printf("image:           %.2f ms%n", imageTime / 1e6);
+        System.out.println("Same results: " + same);
+    }
+
+    /**
+     * The formulation transformByMachineEvent had before it was computed cube by cube.
+     */
+    private static Semantics transformByComplement(Semantics semantics, String machineId, String eventName,
+                                                   Assembly assembly) {
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        Semantics allDomains = Semantics.bottom(assembly.getAssemblyId());
+        Semantics codomainUnion = Semantics.bottom(assembly.getAssemblyId());
+        for (TransitionInterface ti : machine.getTransitionsTriggeredBy(eventName)) {
+            String sourceState = ti.getSource().getName();
+            String targetState = ti.getTarget().getName();
+            Semantics semSource = Configuration.fromBasicStatePropositions(assembly.getAssemblyId(),
+                    List.of(new BasicStateProposition(machineId, sourceState))).toSemantics();
+            Semantics domain = semantics.intersection(semSource);
+            if (!domain.getConfigurations().isEmpty()) {
+                codomainUnion = codomainUnion.OR(domain.computeCodomain(machineId, assembly, sourceState,
+                        targetState));
+                allDomains = allDomains.OR(domain);
+            }
+        }
+        return semantics.AND(allDomains.NOT(assembly)).OR(codomainUnion).clone();
+    }
+
+    private static Assembly buildAssembly(int machines, int states, Random random) {
+        Assembly assembly = new Assembly("TransformBenchmark");
+        for (int m = 0; m < machines; m++) {
+            StateMachine machine = new StateMachine("M" + m);
+            List<StateInterface> created = new ArrayList<>();
+            for (int s = 0; s < states; s++) {
+                State state = new State("S" + s, new Point(0, 0));
+                machine.addState(state);
+                created.add(state);
+            }
+            machine.addTransition(new Transition(machine.getStates().get(0), created.get(0), true));
+            for (int t = 0; t < 2 * states; t++) {
+                // One transition in eight leaves the pseudostate.
+                StateInterface source = random.nextInt(8) == 0
+                        ? machine.getStates().get(0) : created.get(random.nextInt(states));
+                StateInterface target = created.get(random.nextInt(states));
+                machine.addTransition(new Transition(source, target, false, "e" + random.nextInt(EVENTS)));
+            }
+            assembly.addStateMachine("m" + m, machine);
+        }
+        return assembly;
+    }
+
+    private static Semantics randomCover(Assembly assembly, int machines, int states, Random random) {
+        Semantics semantics = new Semantics(assembly.getAssemblyId());
+        int cubes = 1 + random.nextInt(8);
+        for (int i = 0; i < cubes; i++) {
+            List<BasicStateProposition> props = new ArrayList<>();
+            for (int m = 0; m < machines; m++) {
+                if (random.nextInt(3) == 0) {
+                    // One constrained machine in twenty is in its pseudostate.
+                    String state = random.nextInt(20) == 0 ? "PseudoState" : "S" + random.nextInt(states);
+                    props.add(new BasicStateProposition("m" + m, state));
+                }
+            }
+            semantics.addConfiguration(Configuration.fromBasicStatePropositions(assembly.getAssemblyId(), props));
+        }
+        return semantics;
+    }
+}
@@ -0,0 +1,222 @@
+package pws.editor.semantics;
+
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed point of {@link SemanticsVisitor} computed on a {@link ForkJoinPool}, one task per strongly connected
+ * component (see {@link StateComponents}).
+ *
+ * <p>A component starts when all the components with transitions into it are done: it has then received all its
+ * incoming contributions and can be solved alone, with the sequential worklist restricted to its own transitions.
+ * Components no path connects run at the same time. The outgoing contributions of a state are also evaluated as
+ * separate tasks when there are more than one.</p>
+ *
+ * <p>The result does not depend on the interleaving: contributions reaching a state are OR-ed in the order of
+ * their source's rank and then of the transition among the source's outgoing ones, whichever finished first.</p>
+ */
+final class ParallelFixpoint {
+    private final PWSStateMachine machine;
+    private final boolean semiNaive;
+    private final StateComponents components;
+    private final String asmId;
+    /** Contributions from other components, keyed by source rank and transition position. */
+    private final Map<PWSState, ConcurrentSkipListMap<Long, Semantics>> inbox = new IdentityHashMap<>();
+    private final Map<PWSState, Semantics> result = new ConcurrentHashMap<>();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong contributions = new AtomicLong();
+    /** The thread waiting for the result: interrupting it cancels the computation. */
+    private Thread caller;
+
+    ParallelFixpoint(PWSStateMachine machine, SemanticsVisitor.Mode mode) {
+        this.machine = machine;
+        this.semiNaive = mode == SemanticsVisitor.Mode.SEMI_NAIVE;
+        this.components = StateComponents.of(machine);
+        this.asmId = machine.getAssembly().getAssemblyId();
+    }
+
+    /**
+     * @param pseudo  the pseudostate, seeded with the initial semantics
+     * @param initial the initial semantics of the assembly
+     * @param pool    the pool running the components
+     * @return the semantics of every state, bottom for those the pseudostate cannot reach
+     */
+    Map<PWSState, Semantics> run(PWSState pseudo, Semantics initial, ForkJoinPool pool) {
+        caller = Thread.currentThread();
+        for (int r = 0; r < components.stateCount(); r++) {
+            inbox.put(components.stateAt(r), new ConcurrentSkipListMap<>());
+        }
+        inbox.get(pseudo).put(-1L, initial);
+
+        int reachable = components.reachableSize();
+        List<List<Integer>> predecessors = new ArrayList<>();
+        for (int c = 0; c < reachable; c++) {
+            predecessors.add(new ArrayList<>());
+        }
+        for (int c = 0; c < reachable; c++) {
+            BitSet seen = new BitSet();
+            for (PWSState s : components.component(c)) {
+                for (PWSTransition t : machine.getEnabledOutgoingTransitions(s)) {
+                    int d = components.componentOf((PWSState) t.getTarget());
+                    if (d != c && !seen.get(d)) {
+                        seen.set(d);
+                        predecessors.get(d).add(c);
+                    }
+                }
+            }
+        }
+
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int c = 0; c < reachable; c++) {
+            final int component = c;
+            List<Integer> preds = predecessors.get(c);
+            CompletableFuture<?>[] inputs = new CompletableFuture<?>[preds.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = done.get(preds.get(i));
+            }
+            done.add(CompletableFuture.allOf(inputs).thenRunAsync(() -> solve(component), pool));
+        }
+        try {
+            CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        Map<PWSState, Semantics> semMap = new HashMap<>();
+        for (int r = 0; r < components.stateCount(); r++) {
+            PWSState s = components.stateAt(r);
+            semMap.put(s, result.getOrDefault(s, Semantics.bottom(asmId)));
+        }
+        return semMap;
+    }
+
+    long getPolls() {
+        return polls.get();
+    }
+
+    long getContributions() {
+        return contributions.get();
+    }
+
+    int getComponentCount() {
+        return components.size();
+    }
+
+    /**
+     * Solves one component from its inbox, then posts its contributions to the later components.
+     */
+    private void solve(int c) {
+        List<PWSState> states = components.component(c);
+        int first = components.rankOf(states.get(0));
+        Map<PWSState, Semantics> sem = new IdentityHashMap<>();
+        Map<PWSState, Semantics> deltas = new IdentityHashMap<>();
+        BitSet pending = new BitSet();
+        for (PWSState s : states) {
+            Semantics seed = Semantics.bottom(asmId);
+            for (Semantics in : inbox.get(s).values()) {
+                seed = seed.OR(in);
+            }
+            sem.put(s, seed);
+            if (!seed.ISEMPTY()) {
+                deltas.put(s, seed);
+                pending.set(components.rankOf(s) - first);
+            }
+        }
+
+        while (!pending.isEmpty()) {
+            if (caller.isInterrupted()) {
+                throw new CancellationException("Semantics computation cancelled.");
+            }
+            int local = pending.nextSetBit(0);
+            pending.clear(local);
+            polls.incrementAndGet();
+            PWSState src = states.get(local);
+            Semantics base = semiNaive ? deltas.remove(src) : sem.get(src);
+
+            List<PWSTransition> internal = new ArrayList<>();
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
+                if (components.componentOf((PWSState) t.getTarget()) == c) {
+                    internal.add(t);
+                }
+            }
+            List<Semantics> contribs = evaluate(internal, base);
+            for (int i = 0; i < internal.size(); i++) {
+                PWSState tgt = (PWSState) internal.get(i).getTarget();
+                Semantics oldSem = sem.get(tgt);
+                Semantics combined = oldSem.OR(contribs.get(i));
+                if (combined.equals(oldSem)) continue;
+                sem.put(tgt, combined);
+                if (semiNaive) {
+                    Semantics added = Semantics.bottom(asmId);
+                    for (Configuration conf : combined.getConfigurations()) {
+                        if (!oldSem.getConfigurations().contains(conf)) {
+                            added.addConfiguration(conf);
+                        }
+                    }
+                    Semantics d = deltas.get(tgt);
+                    deltas.put(tgt, d == null ? added : d.OR(added));
+                }
+                pending.set(components.rankOf(tgt) - first);
+            }
+        }
+
+        for (PWSState s : states) {
+            result.put(s, sem.get(s));
+            List<PWSTransition> outgoing = machine.getEnabledOutgoingTransitions(s);
+            List<PWSTransition> external = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < outgoing.size(); i++) {
+                if (components.componentOf((PWSState) outgoing.get(i).getTarget()) != c) {
+                    external.add(outgoing.get(i));
+                    positions.add(i);
+                }
+            }
+            List<Semantics> contribs = evaluate(external, sem.get(s));
+            long rank = components.rankOf(s);
+            for (int i = 0; i < external.size(); i++) {
+                inbox.get((PWSState) external.get(i).getTarget()).put((rank << 32) | positions.get(i), contribs.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the contributions of the transitions from the base, in the order of the transitions
+     */
+    private List<Semantics> evaluate(List<PWSTransition> transitions, Semantics base) {
+        List<Semantics> out = new ArrayList<>(transitions.size());
+        contributions.addAndGet(transitions.size());
+        if (transitions.size() < 2 || !ForkJoinTask.inForkJoinPool()) {
+            for (PWSTransition t : transitions) {
+                out.add(machine.computeTransitionContribution(t, base));
+            }
+            return out;
+        }
+        List<ForkJoinTask<Semantics>> tasks = new ArrayList<>(transitions.size());
+        for (PWSTransition t : transitions) {
+            tasks.add(ForkJoinTask.adapt(() -> machine.computeTransitionContribution(t, base)).fork());
+        }
+        for (ForkJoinTask<Semantics> task : tasks) {
+            out.add(task.join());
+        }
+        return out;
+    }
+}
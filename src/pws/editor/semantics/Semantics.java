@@ -1,6 +1,8 @@
 package pws.editor.semantics;
 
 import assembly.Assembly;
+import assembly.ConfigurationCursor;
+import assembly.ConfigurationSpliterator;
 import machinery.StateInterface;
 import machinery.StateMachine;
 import machinery.Transition;
@@ -17,11 +19,24 @@ import java.util.ArrayList;
 
 import static assembly.AssemblyGenerator.evaluateSMPropositionOverAllFeasibleAssemblies;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 
 public class Semantics implements Serializable {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -7102705634886202437L;
+
+    /** Below this many configurations a linear scan is cheaper than maintaining a {@link SubsumptionIndex}. */
+    private static final int INDEX_THRESHOLD = 8;
+
     private String assemblyId;
     private Set<Configuration> configurations;
+    /**
+     * Built on demand once the set grows past INDEX_THRESHOLD, then kept in sync by insert/delete. Read-only
+     * queries may build it from any thread of a parallel computation sharing this Semantics: it is volatile and
+     * only assigned once fully built, so a reader never sees a partial index.
+     */
+    private transient volatile SubsumptionIndex index;
 
     public Semantics(String assemblyId) {
         this.assemblyId = assemblyId;
@@ -32,8 +47,65 @@ public class Semantics implements Serializable {
         return assemblyId;
     }
 
+    /**
+     * @return a read-only view of the configurations; use {@link #addConfiguration(Configuration)} to modify them.
+     */
     public Set<Configuration> getConfigurations() {
-        return configurations;
+        return Collections.unmodifiableSet(configurations);
+    }
+
+    private SubsumptionIndex index() {
+        SubsumptionIndex idx = index;
+        if (idx == null && configurations.size() > INDEX_THRESHOLD) {
+            // Two readers may both build it; either copy is complete and equivalent.
+            idx = new SubsumptionIndex();
+            for (Configuration c : configurations) {
+                idx.insert(c);
+            }
+            index = idx;
+        }
+        return idx;
+    }
+
+    /**
+     * Adds a configuration as is, without any subsumption check.
+     */
+    private void insert(Configuration config) {
+        SubsumptionIndex idx = index;
+        if (configurations.add(config) && idx != null) {
+            idx.insert(config);
+        }
+    }
+
+    private void delete(Configuration config) {
+        SubsumptionIndex idx = index;
+        if (configurations.remove(config) && idx != null) {
+            idx.remove(config);
+        }
+    }
+
+    /**
+     * @return true if some configuration of this Semantics is implied by config
+     */
+    boolean subsumes(Configuration config) {
+        SubsumptionIndex idx = index();
+        if (idx != null) {
+            return idx.findGeneralization(config) != null;
+        }
+        for (Configuration existing : configurations) {
+            if (config.implies(existing)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the states each machine can be in according to this Semantics, built in one pass over the
+     *         configurations; see {@link StateProjection}
+     */
+    public StateProjection projection() {
+        return new StateProjection(this);
     }
 
     /**
@@ -47,21 +119,23 @@ public class Semantics implements Serializable {
         if (!config.getAssemblyId().equals(this.assemblyId)) {
             throw new IllegalArgumentException("The configuration belongs to a different assembly.");
         }
-        // Create a copy of the current configurations to iterate safely.
-        Set<Configuration> toCheck = new HashSet<>(configurations);
-        for (Configuration existing : toCheck) {
-            if (config.implies(existing)) {
-                // New configuration is more specific than an existing configuration.
-                // Therefore, do not add the new configuration.
-                return this;
-            }
-            if (existing.implies(config)) {
-                // Existing configuration is more specific than the new one.
-                // Remove the more specific configuration.
-                configurations.remove(existing);
+        if (subsumes(config)) {
+            // New configuration is more specific than an existing configuration.
+            // Therefore, do not add the new configuration.
+            return this;
+        }
+        // Remove the existing configurations that are more specific than the new one.
+        SubsumptionIndex idx = index();
+        if (idx != null) {
+            List<Configuration> subsumed = new ArrayList<>();
+            idx.collectSpecializations(config, subsumed);
+            for (Configuration existing : subsumed) {
+                delete(existing);
             }
+        } else {
+            configurations.removeIf(existing -> existing.implies(config));
         }
-        configurations.add(config);
+        insert(config);
         return this;
     }
 
@@ -150,18 +224,22 @@ public class Semantics implements Serializable {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
         Set<Configuration> intersectionSet = new HashSet<>();
-        // Compute pairwise intersections without using addConfiguration
-        for (Configuration config1 : this.configurations) {
-            for (Configuration config2 : other.configurations) {
-                Configuration intersectConfig = config1.intersect(config2);
-                if (intersectConfig != null) {
-                    intersectionSet.add(intersectConfig);
+        // Compute pairwise intersections without using addConfiguration, joining on one machine when possible
+        if (!CubeJoin.intersect(this.configurations, other.configurations, intersectionSet::add)) {
+            for (Configuration config1 : this.configurations) {
+                for (Configuration config2 : other.configurations) {
+                    Configuration intersectConfig = config1.intersect(config2);
+                    if (intersectConfig != null) {
+                        intersectionSet.add(intersectConfig);
+                    }
                 }
             }
         }
         // Create a new Semantics object and assign the computed intersections directly.
         Semantics result = new Semantics(this.assemblyId);
-        result.configurations.addAll(intersectionSet);
+        for (Configuration c : intersectionSet) {
+            result.insert(c);
+        }
         return result;
     }
 
@@ -273,6 +351,7 @@ public class Semantics implements Serializable {
      * The union is defined as the set union of configurations followed by a minimization step
      * that removes redundant configurations. If one configuration implies another, the more specific
      * configuration is removed, leaving the more general configuration.
+     * The minimization happens while inserting, through {@link #addConfiguration(Configuration)}.
      *
      * @param other The other Semantics to union with.
      * @return A new Semantics representing the union.
@@ -281,22 +360,11 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
-        Set<Configuration> unionSet = new HashSet<>();
-        unionSet.addAll(this.configurations);
-        unionSet.addAll(other.configurations);
-
-        // Minimize: remove the configuration that implies the other (i.e. the more specific one).
-        Set<Configuration> minimized = new HashSet<>(unionSet);
-        for (Configuration c1 : unionSet) {
-            for (Configuration c2 : unionSet) {
-                if (c1 != c2 && c1.implies(c2)) {
-                    // c1 is more specific than c2, so remove c1.
-                    minimized.remove(c1);
-                }
-            }
-        }
         Semantics result = new Semantics(this.assemblyId);
-        for (Configuration c : minimized) {
+        for (Configuration c : this.configurations) {
+            result.addConfiguration(c);
+        }
+        for (Configuration c : other.configurations) {
             result.addConfiguration(c);
         }
         return result;
@@ -305,7 +373,8 @@ public class Semantics implements Serializable {
     /**
      * Computes the intersection of this Semantics with another Semantics.
      * The intersection is computed pairwise for every configuration from this Semantics
-     * and the other Semantics, then minimized by removing redundant configurations.
+     * and the other Semantics, then minimized by removing redundant configurations: as in
+     * {@link #unionTest(Semantics)}, a configuration implied by another one is dropped.
      *
      * @param other The other Semantics to intersect with.
      * @return A new Semantics representing the intersection.
@@ -314,28 +383,19 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
-        Set<Configuration> interSet = new HashSet<>();
+        Semantics result = new Semantics(this.assemblyId);
+        // The minimized result does not depend on the order the pairs are met, so they can come from the join
+        if (CubeJoin.intersect(this.configurations, other.configurations, result::addConfiguration)) {
+            return result;
+        }
         for (Configuration c1 : this.configurations) {
             for (Configuration c2 : other.configurations) {
                 Configuration cInter = c1.intersect(c2);
                 if (cInter != null) {
-                    interSet.add(cInter);
+                    result.addConfiguration(cInter);
                 }
             }
         }
-        // Minimize: remove redundant configurations
-        Set<Configuration> minimized = new HashSet<>(interSet);
-        for (Configuration c1 : interSet) {
-            for (Configuration c2 : interSet) {
-                if (c1 != c2 && c1.implies(c2)) {
-                    minimized.remove(c2);
-                }
-            }
-        }
-        Semantics result = new Semantics(this.assemblyId);
-        for (Configuration c : minimized) {
-            result.addConfiguration(c);
-        }
         return result;
     }
 
@@ -344,6 +404,9 @@ public class Semantics implements Serializable {
      * The complement consists of those configurations in the universe that do NOT imply any configuration
      * in this Semantics.
      *
+     * Universes larger than {@link ConfigurationSpliterator#PARALLEL_THRESHOLD} are scanned by
+     * {@link #complementTestParallel(Assembly)}.
+     *
      * @param assembly The Assembly instance used to generate the universe.
      * @return A new Semantics representing the complement.
      */
@@ -351,6 +414,9 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(assembly.getAssemblyId())) {
             throw new IllegalArgumentException("Assembly ID mismatch.");
         }
+        if (ConfigurationCursor.overUniverse(assembly).size() > ConfigurationSpliterator.PARALLEL_THRESHOLD) {
+            return complementTestParallel(assembly);
+        }
         Set<Configuration> universe = assembly.generateUniverse();
         Semantics result = new Semantics(this.assemblyId);
         for (Configuration c : universe) {
@@ -370,6 +436,64 @@ public class Semantics implements Serializable {
         return result;
     }
 
+    /**
+     * Same as {@link #complementTest(Assembly)}, but the universe is split across the common fork-join pool by a
+     * {@link ConfigurationSpliterator}. The configurations of the complement are collected in enumeration order
+     * and added one by one, so the result is the same as the sequential one.
+     *
+     * @param assembly The Assembly instance used to generate the universe.
+     * @return A new Semantics representing the complement.
+     */
+    public Semantics complementTestParallel(Assembly assembly) {
+        if (!this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
+        }
+        // Build the index up front: the workers only read it.
+        index();
+        List<Configuration> outside = ConfigurationSpliterator.stream(assembly, false, true)
+                .map(ConfigurationCursor::toConfiguration)
+                .filter(c -> !subsumes(c))
+                .collect(Collectors.toList());
+        Semantics result = new Semantics(this.assemblyId);
+        for (Configuration c : outside) {
+            result.addConfiguration(c);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the complement of this Semantics relative to the universe generated by the given Assembly,
+     * without enumerating the universe: the cover is subtracted cube by cube from the unconstrained
+     * configuration with the disjoint sharp operator (see {@link CubeCover}). The result denotes the same
+     * configurations as {@link #complementTest(Assembly)}, but as partial configurations.
+     *
+     * @param assembly The Assembly instance defining the domain of each machine.
+     * @return A new Semantics representing the complement.
+     */
+    public Semantics complementCover(Assembly assembly) {
+        if (!this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
+        }
+        Semantics result = new CubeCover(assembly).complement(this);
+        return result != null ? result : complementTest(assembly);
+    }
+
+    /**
+     * Computes the configurations of this Semantics that are not in the other one, by subtracting each cube
+     * of the other Semantics from this cover with the disjoint sharp operator (see {@link CubeCover}).
+     *
+     * @param other    The Semantics to subtract.
+     * @param assembly The Assembly instance defining the domain of each machine.
+     * @return A new Semantics representing this minus other.
+     */
+    public Semantics difference(Semantics other, Assembly assembly) {
+        if (!this.assemblyId.equals(other.getAssemblyId()) || !this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
+        }
+        Semantics result = new CubeCover(assembly).difference(this, other);
+        return result != null ? result : this.AND(other.complementTest(assembly));
+    }
+
     /**
      * Determines whether this Semantics implies the other Semantics.
      * According to the theory, this Semantics implies the other if every configuration in this Semantics
@@ -383,14 +507,7 @@ public class Semantics implements Serializable {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
         for (Configuration c : this.configurations) {
-            boolean found = false;
-            for (Configuration otherConf : other.getConfigurations()) {
-                if (c.implies(otherConf)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) return false;
+            if (!other.subsumes(c)) return false;
         }
         return true;
     }
@@ -427,6 +544,26 @@ public class Semantics implements Serializable {
         return semS1.impliesTest(semS2);
     }
 
+    /**
+     * Determines whether this Semantics logically implies the other Semantics, with the same meaning as
+     * {@link #impliesTestUniversal(Semantics, Assembly)} but working on the cube covers directly: every
+     * configuration of this Semantics must be covered by the configurations of the other one, which is
+     * checked as a tautology of the other cover restricted to each cube (see {@link CubeCover}).
+     * No assembly is cloned and no complement is computed.
+     *
+     * @param other The Semantics to compare against.
+     * @param assembly The Assembly instance defining the states of each machine, pseudostates included.
+     * @return true if every configuration in which this Semantics holds also satisfies the other Semantics.
+     * @throws IllegalArgumentException if the two Semantics belong to different assemblies.
+     */
+    public boolean impliesCover(Semantics other, Assembly assembly) {
+        if (!this.assemblyId.equals(other.getAssemblyId())) {
+            throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
+        }
+        Boolean result = new CubeCover(assembly, true).contains(other, this);
+        return result != null ? result : impliesTestUniversal(other, assembly);
+    }
+
     /**
      * Simplifies this Semantics by checking, for each state machine m in the given Assembly and each state S of m,
      * whether the semantics consisting solely of the configuration for m.S implies this Semantics.
@@ -488,78 +625,96 @@ public class Semantics implements Serializable {
             throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
         }
 
-        // Collect all transitions for this event
-        List<TransitionInterface> triggered = new ArrayList<>();
-        for (TransitionInterface ti : machine.getTransitions()) {
-            if (ti.getTriggerEvent().equals(eventName)) {
-                triggered.add(ti);
-            }
-        }
-        if (triggered.isEmpty()) {
+        // Sources of the triggered transitions, each with its targets, from the machine's index
+        Map<String, List<String>> moves = machine.getEventMoves(eventName);
+        if (moves.isEmpty()) {
             throw new IllegalArgumentException(
                 "No transition triggered by event " + eventName + " found in machine " + machineId);
         }
+        Semantics result = image(machineId, domainOf(machine), moves);
+        return result != null ? result : this.clone();
+    }
 
-        // Accumulate domains and codomains for each applicable transition
-        Semantics allDomains = Semantics.bottom(assembly.getAssemblyId());
-        Semantics codomainUnion = Semantics.bottom(assembly.getAssemblyId());
-
-        for (TransitionInterface ti : triggered) {
-            Transition transition = (Transition) ti;
-            String sourceState = transition.getSource().getName();
-            String targetState = transition.getTarget().getName();
-
-            // Build domain for this transition: S ∧ {m.sourceState}
-            Configuration confSource = Configuration.fromBasicStatePropositions(
-                this.assemblyId,
-                List.of(new BasicStateProposition(machineId, sourceState))
-            );
-            Semantics semSource = confSource.toSemantics();
-            Semantics domain = this.intersection(semSource);
-
-            if (!domain.getConfigurations().isEmpty()) {
-                // Compute codomain by applying the transition to each config in domain
-                Semantics codomain = domain.computeCodomain(machineId, assembly, sourceState, targetState);
-                codomainUnion = codomainUnion.OR(codomain);
-                allDomains = allDomains.OR(domain);
+    public Semantics transformByMachineTransition(String machineId, Transition transition, Assembly assembly) {
+        Map<String, List<String>> moves = Map.of(
+                transition.getSource().getName(), List.of(transition.getTarget().getName()));
+        Semantics result = image(machineId, domainOf(assembly.getStateMachines().get(machineId)), moves);
+        // If no configuration is in { machineId: sourceState } we don't perform any transformation.
+        return result != null ? result : this;
+    }
+
+    /**
+     * Image of this Semantics through a set of moves of one machine, computed cube by cube.
+     *
+     * <p>A cube fixing the machine to a source is replaced by one cube per target. A cube leaving the machine free
+     * is split on its value: one cube per target, plus one cube for each state of the machine that is not a
+     * source. Every other cube is kept as is. The result is minimized while inserting, so the cost depends on
+     * the size of the cover and of the machine, and not on the size of the universe as with
+     * {@code this.AND(domain.NOT(assembly))}.</p>
+     *
+     * <p>The states of the machine are those of the universe (see {@link CubeCover}), pseudostates left out. A cube
+     * fixing the machine to a pseudostate source denotes no configuration of the universe; like any other source
+     * cube, it is replaced by its targets and not kept.</p>
+     *
+     * @param machineId the machine M whose current state changes
+     * @param domain    the states of M in the universe, see {@link #domainOf(StateMachine)}
+     * @param moves     for each source state of M, its target states; a source may be one of its own targets
+     * @return the transformed Semantics, or null if no configuration of this Semantics is in a source state
+     */
+    Semantics image(String machineId, Set<String> domain, Map<String, List<String>> moves) {
+        // States a free cube keeps: all of them, unless some source is removed from the domain
+        List<String> kept = null;
+        for (String source : moves.keySet()) {
+            if (domain.contains(source)) {
+                kept = new ArrayList<>(domain);
+                kept.removeAll(moves.keySet());
+                break;
             }
         }
 
-        // Remove all domain configurations, add all codomain configurations
-        Semantics remainder = this.AND(allDomains.NOT(assembly));
-        Semantics result = remainder.OR(codomainUnion);
-        return result.clone();
+        Semantics result = new Semantics(this.assemblyId);
+        boolean moved = false;
+        for (Configuration conf : this.configurations) {
+            String state = conf.getStateName(machineId);
+            if (state == null) {
+                for (List<String> targets : moves.values()) {
+                    for (String target : targets) {
+                        result.addConfiguration(conf.replaceConstraint(machineId, target));
+                    }
+                }
+                moved |= !moves.isEmpty();
+                if (kept == null) {
+                    result.addConfiguration(conf);
+                } else {
+                    for (String other : kept) {
+                        result.addConfiguration(conf.replaceConstraint(machineId, other));
+                    }
+                }
+            } else if (moves.containsKey(state)) {
+                for (String target : moves.get(state)) {
+                    result.addConfiguration(conf.replaceConstraint(machineId, target));
+                }
+                moved = true;
+            } else {
+                result.addConfiguration(conf);
+            }
+        }
+        return moved ? result : null;
     }
 
-    public Semantics transformByMachineTransition(String machineId, Transition transition, Assembly assembly) {
-        String sourceState = transition.getSource().getName();
-        String targetState = transition.getTarget().getName();
-
-        // Create a configuration representing { machineId: sourceState }
-        Configuration confSource = Configuration.fromBasicStatePropositions(
-                this.assemblyId,
-                Arrays.asList(new BasicStateProposition(machineId, sourceState))
-        );
-        // Check if the current Semantics intersects  { machineId: sourceState }
-        Semantics semSource = confSource.toSemantics();
-
-        // build the domain of the transformation function
-        Semantics domain = this.intersection(semSource);
-        // check if the domain is not empty
-        if ( domain.configurations.isEmpty() ) {
-            // If it is empty, we don't perform any transformation.
-            return this;
+    /**
+     * @return the names of the non-pseudo states of the machine, empty if the machine is null
+     */
+    static Set<String> domainOf(StateMachine machine) {
+        Set<String> domain = new LinkedHashSet<>();
+        if (machine != null) {
+            for (StateInterface s : machine.getStates()) {
+                if (!"PseudoState".equals(s.getName())) {
+                    domain.add(s.getName());
+                }
+            }
         }
-        // if is not empty transform the domain in the codomain
-
-        // Build a new codomain by transforming the domain:
-        // For each configuration in the domain, substitute each basic state proposition
-        // (...,machineId.sourceState,...) with (...,machineId.targetState,...)
-        final Semantics codomain = domain.computeCodomain(machineId, assembly, sourceState, targetState);
-        Semantics removeDomainFromThis = this.AND(semSource.NOT(assembly));
-        Semantics addCodomainToThis = removeDomainFromThis.OR(codomain);
-
-        return addCodomainToThis.clone();
+        return domain;
     }
 
     public Semantics computeCodomain(String machineId, Assembly assembly, String sourceState, String targetState) {
@@ -573,6 +728,16 @@ public class Semantics implements Serializable {
         return codomain;
     }
 
+    /**
+     * Shallow copy: the configurations are shared and the set, already free of subsumed configurations,
+     * is copied as is instead of being rebuilt one addConfiguration at a time as in {@link #clone()}.
+     */
+    Semantics copy() {
+        Semantics copy = new Semantics(this.assemblyId);
+        copy.configurations.addAll(this.configurations);
+        return copy;
+    }
+
     @Override
     public Semantics clone() {
         Semantics cloned = new Semantics(this.assemblyId);
@@ -592,7 +757,10 @@ public class Semantics implements Serializable {
     public static Semantics top(String assemblyId, Assembly assembly) {
         // Return a Semantics that contains all fully-specified configurations
         Semantics sem = new Semantics(assemblyId);
-        sem.getConfigurations().addAll(assembly.generateUniverse());
+        // Fully-specified configurations are pairwise incomparable: no minimization needed.
+        for (Configuration c : assembly.generateUniverse()) {
+            sem.insert(c);
+        }
         return sem;
     }
 
@@ -620,17 +788,15 @@ public class Semantics implements Serializable {
     }
 
     public Semantics NOT(Assembly assembly) {
-        return this.complementTest(assembly);
+        return this.complementCover(assembly);
     }
 
     public Semantics DIFF(Semantics other, Assembly assembly) {
-        Semantics notOther = other.NOT(assembly);
-        Semantics diff = this.AND(notOther);
-        return diff;
+        return this.difference(other, assembly);
     }
 
     public boolean LEQ(Semantics other, Assembly assembly) {
-        return this.impliesTestUniversal(other,assembly);
+        return this.impliesCover(other, assembly);
     }
 
     public boolean ISEMPTY() {
@@ -0,0 +1,79 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.Transition;
+import smalgebra.SMProposition;
+
+/**
+ * Abstract algebra over sets of configurations of an {@link Assembly}.
+ *
+ * <p>{@link Semantics} is the explicit, cube-list representation used by the editor annotations.
+ * A SemanticsAlgebra lets the fixed-point computation in {@link SemanticsVisitor} run on a different
+ * (typically symbolic) representation {@code S} and convert back to {@link Semantics} only at the end.</p>
+ *
+ * <p>Every value of type {@code S} denotes a subset of the universe of the assembly, i.e. of the
+ * fully-specified configurations returned by {@link Assembly#generateUniverse()}. The operations
+ * mirror the homonymous methods of {@link Semantics}.</p>
+ *
+ * @param <S> the representation of a set of configurations
+ */
+public interface SemanticsAlgebra<S> {
+
+    /**
+     * @return the assembly whose configuration space this algebra ranges over
+     */
+    Assembly getAssembly();
+
+    /**
+     * @return the empty set of configurations
+     */
+    S bottom();
+
+    /**
+     * @return the whole universe of the assembly
+     */
+    S top();
+
+    /**
+     * Converts an explicit Semantics into this representation.
+     */
+    S fromSemantics(Semantics semantics);
+
+    /**
+     * Converts a guard proposition into the set of configurations in which it holds.
+     */
+    S fromProposition(SMProposition proposition);
+
+    /**
+     * Converts a value of this algebra back into an explicit Semantics (a list of cubes).
+     */
+    Semantics toSemantics(S s);
+
+    S AND(S a, S b);
+
+    S OR(S a, S b);
+
+    S NOT(S a);
+
+    S DIFF(S a, S b);
+
+    boolean LEQ(S a, S b);
+
+    boolean EQ(S a, S b);
+
+    boolean ISEMPTY(S a);
+
+    /**
+     * Applies the action {@code machineId.eventName}, with the same meaning as
+     * {@link Semantics#transformByMachineEvent(String, String, Assembly)}.
+     *
+     * @throws IllegalArgumentException if the machine or a transition triggered by the event is not found.
+     */
+    S transformByMachineEvent(S s, String machineId, String eventName);
+
+    /**
+     * Fires a single transition of a component machine, with the same meaning as
+     * {@link Semantics#transformByMachineTransition(String, Transition, Assembly)}.
+     */
+    S transformByMachineTransition(S s, String machineId, Transition transition);
+}
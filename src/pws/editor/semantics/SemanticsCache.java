@@ -0,0 +1,187 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import smalgebra.PropositionFactory;
+import smalgebra.SMProposition;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of {@link SMProposition#toSemantics(Assembly)}.
+ *
+ * <p>Entries are keyed by the {@link PropositionFactory#intern(SMProposition) interned} proposition, the assembly
+ * and its structural {@link Assembly#getVersion() version}: a guard evaluated again and again during a recompute
+ * is converted once, and any structural change of the assembly makes the old entries unreachable.
+ * Stale entries are dropped explicitly by {@link #invalidate(SMProposition)} when a guard is edited and by
+ * {@link #invalidateAssembly(String)} when machines are added or removed, or else aged out by the LRU policy.</p>
+ *
+ * <p>Callers get a private copy of the cached Semantics. The cache is thread-safe; a conversion runs outside the
+ * lock, so two threads missing on the same key may both compute it.</p>
+ */
+public final class SemanticsCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final SemanticsCache SHARED = new SemanticsCache(DEFAULT_CAPACITY);
+
+    private final Map<Key, Semantics> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Where the references of collected propositions and assemblies are enqueued. */
+    private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+    private int capacity;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SemanticsCache(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * @return the cache used by {@link SMProposition#toSemantics(Assembly)}
+     */
+    public static SemanticsCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the Semantics of the proposition over the assembly's universe, from the cache when possible
+     */
+    public Semantics toSemantics(SMProposition proposition, Assembly assembly) {
+        SMProposition interned = PropositionFactory.intern(proposition);
+        Key key = new Key(interned, assembly, assembly.getVersion(), null);
+        Semantics cached;
+        synchronized (this) {
+            expungeReleased();
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.copy();
+        }
+        misses.incrementAndGet();
+        Semantics computed = interned.computeSemantics(assembly);
+        synchronized (this) {
+            expungeReleased();
+            entries.put(new Key(interned, assembly, key.version, released), computed);
+            trim();
+        }
+        return computed.copy();
+    }
+
+    /**
+     * Drops every entry of the proposition, for instance when a guard is replaced.
+     */
+    public synchronized void invalidate(SMProposition proposition) {
+        if (proposition == null) {
+            return;
+        }
+        SMProposition interned = PropositionFactory.intern(proposition);
+        entries.keySet().removeIf(k -> k.proposition.get() == interned);
+    }
+
+    /**
+     * Drops every entry of the assembly, for instance when machines are added or removed.
+     */
+    public synchronized void invalidateAssembly(String assemblyId) {
+        entries.keySet().removeIf(k -> k.assemblyId.equals(assemblyId));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of entries, evicting the least recently used ones if needed.
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        trim();
+    }
+
+    public synchronized int size() {
+        expungeReleased();
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Drops the entries whose proposition or assembly has been collected.
+     */
+    private void expungeReleased() {
+        if (released.poll() == null) {
+            return;
+        }
+        while (released.poll() != null) {
+            // drain: one pass below removes all of them
+        }
+        entries.keySet().removeIf(Key::isReleased);
+    }
+
+    private void trim() {
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Key {
+        final WeakReference<SMProposition> proposition;
+        /** Compared by identity: two assemblies sharing a machine may report the same id and version. */
+        final WeakReference<Assembly> assembly;
+        final String assemblyId;
+        final long version;
+        final int hash;
+
+        /**
+         * @param queue where to enqueue the references once collected; null for a key that is only looked up
+         */
+        Key(SMProposition proposition, Assembly assembly, long version, ReferenceQueue<Object> queue) {
+            this.proposition = new WeakReference<>(proposition, queue);
+            this.assembly = new WeakReference<>(assembly, queue);
+            this.assemblyId = assembly.getAssemblyId();
+            this.version = version;
+            this.hash = 31 * System.identityHashCode(proposition) + Long.hashCode(version);
+        }
+
+        boolean isReleased() {
+            return proposition.get() == null || assembly.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            // A released key equals no other key: its referents are null here but never in a lookup key.
+            SMProposition p = proposition.get();
+            Assembly a = assembly.get();
+            return p != null && a != null
+                    && version == that.version
+                    && p == that.proposition.get()
+                    && a == that.assembly.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package pws.editor.semantics;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.ArrayList;
@@ -38,10 +40,157 @@ public class SemanticsVisitor {
     private static final Logger logger = Logger.getLogger(SemanticsVisitor.class.getName());
 
     /**
-     * Iteratively computes a semantics map for every PWSState until convergence.
+     * How the worklist propagates the semantics of a state that has grown.
+     */
+    public enum Mode {
+        /** Every outgoing contribution is recomputed from the whole semantics of the source. */
+        NAIVE,
+        /**
+         * Only the configurations added to the source since it was last processed are pushed through its outgoing
+         * transitions. Guards, actions and exit-zone transformations all distribute over union, so the fixed point
+         * is the same, but configurations already propagated are not transformed again on every lap of a loop.
+         */
+        SEMI_NAIVE
+    }
+
+    /**
+     * In which order the worklist hands out the states to process.
+     */
+    public enum Schedule {
+        /** First in, first out: a state may be processed many times before its predecessors are stable. */
+        FIFO,
+        /**
+         * Strongly connected components in topological order, states of a component in reverse post-order
+         * (see {@link StateWorklist}): the acyclic parts of the graph are processed once.
+         */
+        SCC,
+        /**
+         * The components of {@link #SCC} solved on a fork-join pool of
+         * {@link SemanticsVisitor#getParallelism()} threads, each as soon as the components leading into it are
+         * done (see {@link ParallelFixpoint}). The result is the same as the sequential one. Computations over a
+         * {@link SemanticsAlgebra}, which need not be thread-safe, run as {@link #SCC}.
+         */
+        PARALLEL
+    }
+
+    /**
+     * Work done by one fixed-point computation.
+     */
+    public static final class Statistics {
+        private final long polls;
+        private final long contributions;
+        private final int components;
+
+        Statistics(long polls, long contributions, int components) {
+            this.polls = polls;
+            this.contributions = contributions;
+            this.components = components;
+        }
+
+        /** @return the number of states taken from the worklist */
+        public long getPolls() {
+            return polls;
+        }
+
+        /** @return the number of transition contributions evaluated */
+        public long getContributions() {
+            return contributions;
+        }
+
+        /** @return the number of strongly connected components, 0 under {@link Schedule#FIFO} */
+        public int getComponents() {
+            return components;
+        }
+
+        @Override
+        public String toString() {
+            return polls + " polls, " + contributions + " contributions, " + components + " components";
+        }
+    }
+
+    private final Mode mode;
+    private final Schedule schedule;
+    private final int parallelism;
+    /** Work done by the last computation of this visitor that completed. */
+    private volatile Statistics lastStatistics;
+
+    /**
+     * A visitor in {@link Mode#SEMI_NAIVE} mode with the {@link Schedule#SCC} schedule.
+     */
+    public SemanticsVisitor() {
+        this(Mode.SEMI_NAIVE, Schedule.SCC);
+    }
+
+    /**
+     * A visitor whose {@link Schedule#PARALLEL} schedule has the parallelism of the common pool.
+     */
+    public SemanticsVisitor(Mode mode, Schedule schedule) {
+        this(mode, schedule, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param parallelism the number of threads of the {@link Schedule#PARALLEL} schedule
+     */
+    public SemanticsVisitor(Mode mode, Schedule schedule, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.mode = Objects.requireNonNull(mode);
+        this.schedule = Objects.requireNonNull(schedule);
+        this.parallelism = parallelism;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the work done by the last computation of this visitor that completed, or null if none has
+     */
+    public Statistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    /**
+     * Cooperative cancellation: a computation stops when its thread is interrupted.
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Semantics computation cancelled.");
+        }
+    }
+
+    private void record(PWSStateMachine machine, StateWorklist worklist, long contributions) {
+        record(machine, new Statistics(worklist.getPolls(), contributions, worklist.getComponentCount()));
+    }
+
+    private void record(PWSStateMachine machine, Statistics stats) {
+        lastStatistics = stats;
+        logger.info("Semantics of machine '" + machine.getName() + "': " + stats + ".");
+    }
+
+    /**
+     * Iteratively computes a semantics map for every PWSState until convergence, with a default visitor.
      */
     public static Map<PWSState, Semantics> computeAllStateSemantics(PWSStateMachine machine) {
-        logger.info("Starting fixed-point semantics computation (worklist) for machine '" + machine.getName() + "'.");
+        return new SemanticsVisitor().compute(machine);
+    }
+
+    /**
+     * Iteratively computes a semantics map for every PWSState until convergence, propagating and scheduling as
+     * this visitor says.
+     */
+    public Map<PWSState, Semantics> compute(PWSStateMachine machine) {
+        logger.info("Starting fixed-point semantics computation (worklist, " + mode + ") for machine '"
+                + machine.getName() + "'.");
 
         Assembly asm = machine.getAssembly();
         String asmId = asm.getAssemblyId();
@@ -64,21 +213,41 @@ public class SemanticsVisitor {
         // seed pseudostate with initial assembly semantics
         semMap.put(pseudo, asm.calculateInitialStateSemantics());
 
+        if (schedule == Schedule.PARALLEL) {
+            ParallelFixpoint fixpoint = new ParallelFixpoint(machine, mode);
+            // One pool per computation, so that it has the parallelism of this visitor and is not left behind.
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                semMap = fixpoint.run(pseudo, semMap.get(pseudo), pool);
+            } finally {
+                pool.shutdown();
+            }
+            record(machine, new Statistics(fixpoint.getPolls(), fixpoint.getContributions(),
+                    fixpoint.getComponentCount()));
+            logger.info("Completed parallel semantics computation for machine '" + machine.getName() + "'.");
+            return semMap;
+        }
+
         // Worklist of states to process
-        Deque<PWSState> worklist = new ArrayDeque<>();
+        StateWorklist worklist = StateWorklist.create(machine, schedule);
         worklist.add(pseudo);
 
+        if (mode == Mode.SEMI_NAIVE) {
+            propagateDeltas(machine, semMap, pseudo, worklist);
+            logger.info("Completed worklist semantics computation for machine '" + machine.getName() + "'.");
+            return semMap;
+        }
+
         // Chaotic iteration until fixed-point
+        long contributions = 0;
         while (!worklist.isEmpty()) {
+            checkCancelled();
             PWSState src = worklist.poll();
             Semantics base = semMap.get(src);
 
-            for (TransitionInterface ti : machine.getTransitions()) {
-                if (!(ti instanceof PWSTransition)) continue;
-                PWSTransition t = (PWSTransition) ti;
-                if (t.getSource() != src || !t.isEnabled()) continue;
-
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
                 Semantics contrib = machine.computeTransitionContribution(t, base);
+                contributions++;
                 PWSState tgt = (PWSState) t.getTarget();
                 Semantics oldSem = semMap.get(tgt);
                 Semantics combined = oldSem.OR(contrib);
@@ -89,11 +258,239 @@ public class SemanticsVisitor {
             }
         }
 
+        record(machine, worklist, contributions);
         // (Removed POST-FIXPOINT EXIT-ZONE UPDATE)
         logger.info("Completed worklist semantics computation for machine '" + machine.getName() + "'.");
         return semMap;
     }
 
+    /**
+     * Semi-naive worklist: each queued state carries the configurations it gained since it was last polled, and
+     * only those are pushed through its outgoing transitions.
+     */
+    private void propagateDeltas(PWSStateMachine machine, Map<PWSState, Semantics> semMap,
+                                 PWSState pseudo, StateWorklist worklist) {
+        String asmId = machine.getAssembly().getAssemblyId();
+        Map<PWSState, Semantics> deltas = new HashMap<>();
+        deltas.put(pseudo, semMap.get(pseudo));
+
+        long contributions = 0;
+        while (!worklist.isEmpty()) {
+            checkCancelled();
+            PWSState src = worklist.poll();
+            Semantics delta = deltas.remove(src);
+
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
+                Semantics contrib = machine.computeTransitionContribution(t, delta);
+                contributions++;
+                PWSState tgt = (PWSState) t.getTarget();
+                Semantics oldSem = semMap.get(tgt);
+                Semantics combined = oldSem.OR(contrib);
+                if (combined.equals(oldSem)) continue;
+                semMap.put(tgt, combined);
+
+                // The new configurations of the target are those of the union it did not have before; one that
+                // absorbed an old configuration stands in for it in the delta.
+                Semantics added = Semantics.bottom(asmId);
+                for (Configuration c : combined.getConfigurations()) {
+                    if (!oldSem.getConfigurations().contains(c)) {
+                        added.addConfiguration(c);
+                    }
+                }
+                Semantics pending = deltas.get(tgt);
+                if (pending == null) {
+                    deltas.put(tgt, added);
+                    worklist.add(tgt);
+                } else {
+                    deltas.put(tgt, pending.OR(added));
+                }
+            }
+        }
+        record(machine, worklist, contributions);
+    }
+
+    /**
+     * Recomputes the semantics of some states only, the others keeping their current {@code stateSemantics}.
+     *
+     * <p>This is the rederive step of an incremental update: the affected states have been retracted, and are
+     * rebuilt from the contributions of the unaffected states leading into them, and then from each other. The
+     * affected set must be closed under enabled transitions, for the unaffected states not to depend on it.</p>
+     *
+     * @param machine  the PWS state machine
+     * @param affected the states to recompute, closed under enabled transitions
+     * @return the new semantics of the affected states
+     */
+    public Map<PWSState, Semantics> recompute(PWSStateMachine machine, Set<PWSState> affected) {
+        Assembly asm = machine.getAssembly();
+        String asmId = asm.getAssemblyId();
+        Map<PWSState, Semantics> semMap = new HashMap<>();
+        StateWorklist worklist = StateWorklist.create(machine, Schedule.SCC);
+        for (PWSState s : affected) {
+            semMap.put(s, s.isPseudoState() ? asm.calculateInitialStateSemantics() : Semantics.bottom(asmId));
+            if (s.isPseudoState()) {
+                worklist.add(s);
+            }
+        }
+
+        // Seed from the boundary: enabled transitions from unaffected states into affected ones.
+        long contributions = 0;
+        for (StateInterface si : machine.getStates()) {
+            PWSState src = (PWSState) si;
+            if (affected.contains(src)) continue;
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
+                PWSState tgt = (PWSState) t.getTarget();
+                if (!affected.contains(tgt)) continue;
+                Semantics contrib = machine.computeTransitionContribution(t, src.getStateSemantics());
+                contributions++;
+                Semantics oldSem = semMap.get(tgt);
+                Semantics combined = oldSem.OR(contrib);
+                if (!combined.equals(oldSem)) {
+                    semMap.put(tgt, combined);
+                    worklist.add(tgt);
+                }
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            checkCancelled();
+            PWSState src = worklist.poll();
+            Semantics base = semMap.get(src);
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
+                Semantics contrib = machine.computeTransitionContribution(t, base);
+                contributions++;
+                PWSState tgt = (PWSState) t.getTarget();
+                Semantics oldSem = semMap.get(tgt);
+                Semantics combined = oldSem.OR(contrib);
+                if (!combined.equals(oldSem)) {
+                    semMap.put(tgt, combined);
+                    worklist.add(tgt);
+                }
+            }
+        }
+        record(machine, worklist, contributions);
+        return semMap;
+    }
+
+    /**
+     * Computes the same fixed point as {@link #computeAllStateSemantics(PWSStateMachine)}, running the
+     * iteration on the representation of the given {@link SemanticsAlgebra} (e.g. a BDD) and converting
+     * each state's result back to an explicit {@link Semantics} only once convergence is reached.
+     *
+     * <p>Exit zones are read from each source state's reactive semantics, which must therefore be
+     * up to date (see {@link PWSStateMachine#recalculateSemantics()}).</p>
+     *
+     * @param machine the PWS state machine
+     * @param algebra the algebra to iterate with, built over the machine's assembly
+     * @param <S>     the algebra's representation of a set of configurations
+     * @return the semantics of every state, pseudostate included
+     */
+    public static <S> Map<PWSState, Semantics> computeAllStateSemantics(PWSStateMachine machine,
+                                                                       SemanticsAlgebra<S> algebra) {
+        return new SemanticsVisitor().compute(machine, algebra);
+    }
+
+    /**
+     * As {@link #computeAllStateSemantics(PWSStateMachine, SemanticsAlgebra)}, propagating and scheduling as this
+     * visitor says. In {@link Mode#SEMI_NAIVE} mode the delta of a state is {@code DIFF(new, old)} in the algebra.
+     */
+    public <S> Map<PWSState, Semantics> compute(PWSStateMachine machine, SemanticsAlgebra<S> algebra) {
+        logger.info("Starting symbolic fixed-point semantics computation (" + mode + ") for machine '"
+                + machine.getName() + "'.");
+
+        Assembly asm = machine.getAssembly();
+        Map<PWSState, S> semMap = new HashMap<>();
+        PWSState pseudo = null;
+        for (StateInterface si : machine.getStates()) {
+            PWSState s = (PWSState) si;
+            semMap.put(s, algebra.bottom());
+            if (pseudo == null && s.isPseudoState()) {
+                pseudo = s;
+            }
+        }
+        if (pseudo == null) {
+            throw new IllegalStateException("No pseudostate found in machine.");
+        }
+        semMap.put(pseudo, algebra.fromSemantics(asm.calculateInitialStateSemantics()));
+
+        // Guards do not change during the iteration: translate each of them once.
+        Map<PWSTransition, S> guards = new HashMap<>();
+
+        // In semi-naive mode, the configurations each queued state gained since it was last polled.
+        Map<PWSState, S> deltas = new HashMap<>();
+        boolean semiNaive = mode == Mode.SEMI_NAIVE;
+        if (semiNaive) {
+            deltas.put(pseudo, semMap.get(pseudo));
+        }
+
+        StateWorklist worklist = StateWorklist.create(machine,
+                schedule == Schedule.PARALLEL ? Schedule.SCC : schedule);
+        worklist.add(pseudo);
+        long contributions = 0;
+        while (!worklist.isEmpty()) {
+            checkCancelled();
+            PWSState src = worklist.poll();
+            S base = semiNaive ? deltas.remove(src) : semMap.get(src);
+
+            for (PWSTransition t : machine.getEnabledOutgoingTransitions(src)) {
+                S contrib = computeTransitionContribution(t, base, algebra, guards);
+                contributions++;
+                PWSState tgt = (PWSState) t.getTarget();
+                S oldSem = semMap.get(tgt);
+                S combined = algebra.OR(oldSem, contrib);
+                if (algebra.EQ(combined, oldSem)) continue;
+                semMap.put(tgt, combined);
+                if (!semiNaive) {
+                    worklist.add(tgt);
+                    continue;
+                }
+                S added = algebra.DIFF(combined, oldSem);
+                S pending = deltas.get(tgt);
+                if (pending == null) {
+                    deltas.put(tgt, added);
+                    worklist.add(tgt);
+                } else {
+                    deltas.put(tgt, algebra.OR(pending, added));
+                }
+            }
+        }
+
+        record(machine, worklist, contributions);
+
+        Map<PWSState, Semantics> result = new HashMap<>();
+        for (Map.Entry<PWSState, S> entry : semMap.entrySet()) {
+            result.put(entry.getKey(), algebra.toSemantics(entry.getValue()));
+        }
+        logger.info("Completed symbolic semantics computation for machine '" + machine.getName() + "'.");
+        return result;
+    }
+
+    /**
+     * Counterpart of {@link PWSStateMachine#computeTransitionContribution(PWSTransition, Semantics)}
+     * over a {@link SemanticsAlgebra}.
+     */
+    private static <S> S computeTransitionContribution(PWSTransition t, S base, SemanticsAlgebra<S> algebra,
+                                                       Map<PWSTransition, S> guards) {
+        PWSState src = (PWSState) t.getSource();
+        S result;
+        if (t.isTriggerable() || src.isPseudoState()) {
+            S guard = guards.computeIfAbsent(t, k -> algebra.fromProposition(k.getGuardProposition()));
+            result = algebra.AND(base, guard);
+        } else {
+            result = algebra.bottom();
+            for (ExitZone ez : src.getReactiveSemantics()) {
+                if (t.getGuardProposition() instanceof TrueProposition
+                        || ez.getTarget().equals(t.getGuardProposition())) {
+                    S frag = algebra.transformByMachineTransition(base, ez.getStateMachineId(), ez.getTransition());
+                    result = algebra.OR(result, frag);
+                }
+            }
+        }
+        for (Action a : t.getActionList()) {
+            result = algebra.transformByMachineEvent(result, a.getMachineId(), a.getEvent());
+        }
+        return result;
+    }
+
     /**
      * Compute the semantics for a single target state in one iteration of the fixed-point algorithm.
      *
@@ -0,0 +1,191 @@
+package pws.editor.semantics;
+
+import machinery.StateInterface;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strongly connected components of the graph of enabled transitions of a {@link PWSStateMachine}.
+ *
+ * <p>The components are computed with Tarjan's algorithm, starting from the pseudostate, and listed in topological
+ * order: a transition never leads from a component to an earlier one, except from states the pseudostate cannot
+ * reach. Each state gets a rank: the states of the first component come first, then those of the second, and
+ * so on, and inside a component the states are in reverse post-order of the depth-first visit.</p>
+ */
+final class StateComponents {
+    private final List<List<PWSState>> components = new ArrayList<>();
+    private final List<PWSState> byRank = new ArrayList<>();
+    private final Map<PWSState, Integer> rank = new IdentityHashMap<>();
+    private final Map<PWSState, Integer> component = new IdentityHashMap<>();
+    private int reachable;
+
+    private StateComponents() {
+    }
+
+    static StateComponents of(PWSStateMachine machine) {
+        StateComponents result = new StateComponents();
+        new Tarjan(machine).run(result);
+        return result;
+    }
+
+    /**
+     * @return the number of components
+     */
+    int size() {
+        return components.size();
+    }
+
+    /**
+     * @return the number of states, which are ranked from 0 to this number excluded
+     */
+    int stateCount() {
+        return byRank.size();
+    }
+
+    /**
+     * @return the number of components reachable from the pseudostate: they are the first ones
+     */
+    int reachableSize() {
+        return reachable;
+    }
+
+    /**
+     * @return the states of the i-th component in rank order; read-only
+     */
+    List<PWSState> component(int i) {
+        return components.get(i);
+    }
+
+    int componentOf(PWSState state) {
+        return component.get(state);
+    }
+
+    int rankOf(PWSState state) {
+        return rank.get(state);
+    }
+
+    PWSState stateAt(int rank) {
+        return byRank.get(rank);
+    }
+
+    private void add(List<PWSState> states) {
+        int index = components.size();
+        for (PWSState s : states) {
+            rank.put(s, byRank.size());
+            component.put(s, index);
+            byRank.add(s);
+        }
+        components.add(Collections.unmodifiableList(states));
+    }
+
+    /**
+     * Iterative Tarjan, so that long chains of states cannot overflow the stack.
+     */
+    private static final class Tarjan {
+        private final PWSStateMachine machine;
+        private final Map<PWSState, Integer> index = new IdentityHashMap<>();
+        private final Map<PWSState, Integer> lowLink = new IdentityHashMap<>();
+        private final Map<PWSState, Integer> finish = new IdentityHashMap<>();
+        private final Deque<PWSState> stack = new ArrayDeque<>();
+        private final Map<PWSState, Boolean> onStack = new IdentityHashMap<>();
+        /** Components in the order Tarjan closes them, i.e. reverse topological order. */
+        private final List<List<PWSState>> closed = new ArrayList<>();
+        private int counter;
+        private int finished;
+
+        Tarjan(PWSStateMachine machine) {
+            this.machine = machine;
+        }
+
+        void run(StateComponents target) {
+            List<PWSState> roots = new ArrayList<>();
+            for (StateInterface s : machine.getStates()) {
+                PWSState ps = (PWSState) s;
+                if (ps.isPseudoState()) {
+                    roots.add(0, ps);
+                } else {
+                    roots.add(ps);
+                }
+            }
+            // States the pseudostate cannot reach are visited from later roots; each root's part of the graph is
+            // listed after the previous ones, so that the reachable part keeps the lowest ranks.
+            for (PWSState root : roots) {
+                if (index.containsKey(root)) {
+                    continue;
+                }
+                int from = closed.size();
+                visit(root);
+                for (int c = closed.size() - 1; c >= from; c--) {
+                    List<PWSState> states = closed.get(c);
+                    states.sort((a, b) -> Integer.compare(finish.get(b), finish.get(a)));
+                    target.add(states);
+                }
+                if (root.isPseudoState()) {
+                    target.reachable = target.components.size();
+                }
+            }
+        }
+
+        private void visit(PWSState root) {
+            Deque<Frame> frames = new ArrayDeque<>();
+            frames.push(open(root));
+            while (!frames.isEmpty()) {
+                Frame f = frames.peek();
+                if (f.next < f.successors.size()) {
+                    PWSState w = (PWSState) f.successors.get(f.next++).getTarget();
+                    if (!index.containsKey(w)) {
+                        frames.push(open(w));
+                    } else if (onStack.containsKey(w)) {
+                        lowLink.put(f.state, Math.min(lowLink.get(f.state), index.get(w)));
+                    }
+                    continue;
+                }
+                frames.pop();
+                finish.put(f.state, finished++);
+                if (!frames.isEmpty()) {
+                    PWSState parent = frames.peek().state;
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(f.state)));
+                }
+                if (lowLink.get(f.state).equals(index.get(f.state))) {
+                    List<PWSState> states = new ArrayList<>();
+                    PWSState w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        states.add(w);
+                    } while (w != f.state);
+                    closed.add(states);
+                }
+            }
+        }
+
+        private Frame open(PWSState s) {
+            index.put(s, counter);
+            lowLink.put(s, counter);
+            counter++;
+            stack.push(s);
+            onStack.put(s, Boolean.TRUE);
+            return new Frame(s, machine.getEnabledOutgoingTransitions(s));
+        }
+
+        private static final class Frame {
+            final PWSState state;
+            final List<PWSTransition> successors;
+            int next;
+
+            Frame(PWSState state, List<PWSTransition> successors) {
+                this.state = state;
+                this.successors = successors;
+            }
+        }
+    }
+}
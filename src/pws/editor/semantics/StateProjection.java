@@ -0,0 +1,91 @@
+package pws.editor.semantics;
+
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Projection of a {@link Semantics} on each machine: the states a machine can be in according to some
+ * configuration, over the assembly's {@link SymbolTable}.
+ *
+ * <p>{@link #mayBeIn(String, String)} answers whether {@code { machineId: stateName }} intersects the Semantics,
+ * exactly as the syntactic intersection {@code bsp.toSemantics(assembly).AND(semantics)} would, with one bit test:
+ * a configuration intersects it if it leaves the machine unconstrained or constrains it to that state.</p>
+ *
+ * <p>The projection is a snapshot: it does not follow later changes of the Semantics.</p>
+ */
+public final class StateProjection {
+    /** The table of the packed configurations, held so that their indices stay valid. */
+    private final SymbolTable table;
+    /** Machines some configuration leaves unconstrained. */
+    private final BitSet free = new BitSet();
+    /** For each machine index, the states some configuration constrains it to. */
+    private final List<BitSet> values = new ArrayList<>();
+    /** Number of machines interned when the projection was built; later machines are unconstrained. */
+    private final int machines;
+    private final boolean empty;
+    /** Configurations constraining a machine twice, which have no packed form; checked one by one. */
+    private final List<Configuration> unpacked = new ArrayList<>();
+
+    StateProjection(Semantics semantics) {
+        this.table = SymbolTable.forAssembly(semantics.getAssemblyId());
+        this.empty = semantics.ISEMPTY();
+        // Pack first: packing may intern machines, which must all be counted.
+        List<int[]> packed = new ArrayList<>();
+        for (Configuration c : semantics.getConfigurations()) {
+            int[] p = c.packedStates();
+            if (p == null) {
+                unpacked.add(c);
+            } else {
+                packed.add(p);
+            }
+        }
+        this.machines = table.machineCount();
+        for (int m = 0; m < machines; m++) {
+            values.add(new BitSet());
+        }
+        for (int[] p : packed) {
+            for (int m = 0; m < machines; m++) {
+                if (m >= p.length || p[m] == SymbolTable.NONE) {
+                    free.set(m);
+                } else {
+                    values.get(m).set(p[m]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if some configuration of the Semantics is compatible with {@code { machineId: stateName }}
+     */
+    public boolean mayBeIn(String machineId, String stateName) {
+        if (empty) {
+            return false;
+        }
+        int m = table.machineIndexOf(machineId);
+        if (m == SymbolTable.NONE || m >= machines || free.get(m)) {
+            return true;
+        }
+        int s = table.stateIndexOf(machineId, stateName);
+        if (s != SymbolTable.NONE && values.get(m).get(s)) {
+            return true;
+        }
+        for (Configuration c : unpacked) {
+            if (compatible(c, machineId, stateName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean compatible(Configuration c, String machineId, String stateName) {
+        for (BasicStateProposition bsp : c.getBasicStatePropositions()) {
+            if (bsp.getMachineId().equals(machineId) && !bsp.getStateName().equals(stateName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
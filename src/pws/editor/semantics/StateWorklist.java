@@ -0,0 +1,99 @@
+package pws.editor.semantics;
+
+import pws.PWSState;
+import pws.PWSStateMachine;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+/**
+ * Worklist of the states whose outgoing contributions must be (re)computed by {@link SemanticsVisitor}.
+ *
+ * <p>The {@link SemanticsVisitor.Schedule#FIFO FIFO} worklist is the plain queue. The
+ * {@link SemanticsVisitor.Schedule#SCC SCC} worklist ranks the states once by their {@link StateComponents}.
+ * Polling always returns the pending state of least rank, so a component is only processed once every component
+ * that can reach it is stable, and a state outside any cycle is processed exactly once.</p>
+ */
+abstract class StateWorklist {
+    private long polls;
+
+    static StateWorklist create(PWSStateMachine machine, SemanticsVisitor.Schedule schedule) {
+        return schedule == SemanticsVisitor.Schedule.SCC ? new Ranked(machine) : new Fifo();
+    }
+
+    abstract void add(PWSState state);
+
+    abstract boolean isEmpty();
+
+    final PWSState poll() {
+        polls++;
+        return next();
+    }
+
+    abstract PWSState next();
+
+    /**
+     * @return the number of states polled so far
+     */
+    final long getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return the number of strongly connected components, 0 if the worklist does not compute them
+     */
+    int getComponentCount() {
+        return 0;
+    }
+
+    private static final class Fifo extends StateWorklist {
+        private final Deque<PWSState> queue = new ArrayDeque<>();
+
+        @Override
+        void add(PWSState state) {
+            queue.add(state);
+        }
+
+        @Override
+        boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        PWSState next() {
+            return queue.poll();
+        }
+    }
+
+    private static final class Ranked extends StateWorklist {
+        private final StateComponents components;
+        private final BitSet pending = new BitSet();
+
+        Ranked(PWSStateMachine machine) {
+            this.components = StateComponents.of(machine);
+        }
+
+        @Override
+        void add(PWSState state) {
+            pending.set(components.rankOf(state));
+        }
+
+        @Override
+        boolean isEmpty() {
+            return pending.isEmpty();
+        }
+
+        @Override
+        PWSState next() {
+            int r = pending.nextSetBit(0);
+            pending.clear(r);
+            return components.stateAt(r);
+        }
+
+        @Override
+        int getComponentCount() {
+            return components.size();
+        }
+    }
+}
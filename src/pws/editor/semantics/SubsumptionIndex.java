@@ -0,0 +1,203 @@
+package pws.editor.semantics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie over the packed form of {@link Configuration}s that answers subsumption queries without
+ * scanning the whole set.
+ *
+ * <p>Level i of the trie branches on the state of machine i of the assembly's {@link SymbolTable}: one
+ * child per state index, plus a wildcard child for cubes that leave machine i unconstrained. A cube is
+ * stored at the node reached after its last constrained machine; the machines below it are implicitly
+ * unconstrained. With this layout:</p>
+ * <ul>
+ *   <li>{@link #findGeneralization(Configuration)} follows, at each level, the cube's own branch and the
+ *       wildcard branch, and stops at the first stored cube;</li>
+ *   <li>{@link #collectSpecializations(Configuration, List)} follows only the cube's own branch where it is
+ *       constrained and every branch where it is not.</li>
+ * </ul>
+ *
+ * <p>Configurations that cannot be packed (two constraints on the same machine) are kept aside and
+ * checked linearly.</p>
+ */
+final class SubsumptionIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        Configuration stored;
+        Node wildcard;
+        Node[] children = NO_CHILDREN;
+
+        boolean isEmpty() {
+            if (stored != null || wildcard != null) {
+                return false;
+            }
+            for (Node child : children) {
+                if (child != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Node root = new Node();
+    private final List<Configuration> unpackable = new ArrayList<>();
+
+    void insert(Configuration c) {
+        int[] p = c.packedStates();
+        if (p == null) {
+            unpackable.add(c);
+            return;
+        }
+        Node node = root;
+        for (int state : p) {
+            Node next;
+            if (state == SymbolTable.NONE) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                next = node.wildcard;
+            } else {
+                if (state >= node.children.length) {
+                    node.children = Arrays.copyOf(node.children, state + 1);
+                }
+                if (node.children[state] == null) {
+                    node.children[state] = new Node();
+                }
+                next = node.children[state];
+            }
+            node = next;
+        }
+        node.stored = c;
+    }
+
+    void remove(Configuration c) {
+        int[] p = c.packedStates();
+        if (p == null) {
+            unpackable.remove(c);
+            return;
+        }
+        remove(root, p, 0);
+    }
+
+    /**
+     * @return true if node became empty and can be unlinked by its parent
+     */
+    private static boolean remove(Node node, int[] p, int level) {
+        if (level == p.length) {
+            node.stored = null;
+        } else {
+            int state = p[level];
+            if (state == SymbolTable.NONE) {
+                if (node.wildcard != null && remove(node.wildcard, p, level + 1)) {
+                    node.wildcard = null;
+                }
+            } else if (state < node.children.length && node.children[state] != null
+                    && remove(node.children[state], p, level + 1)) {
+                node.children[state] = null;
+            }
+        }
+        return node.isEmpty();
+    }
+
+    /**
+     * @return a stored cube d such that c implies d (possibly c itself), or null if there is none
+     */
+    Configuration findGeneralization(Configuration c) {
+        for (Configuration u : unpackable) {
+            if (c.implies(u)) {
+                return u;
+            }
+        }
+        int[] p = c.packedStates();
+        if (p == null) {
+            List<Configuration> all = new ArrayList<>();
+            collect(root, all);
+            for (Configuration d : all) {
+                if (c.implies(d)) {
+                    return d;
+                }
+            }
+            return null;
+        }
+        return findGeneralization(root, p, 0);
+    }
+
+    private static Configuration findGeneralization(Node node, int[] p, int level) {
+        if (node.stored != null) {
+            return node.stored;
+        }
+        if (level >= p.length) {
+            // c is unconstrained from here on, while every cube below this node constrains some machine.
+            return null;
+        }
+        int state = p[level];
+        if (state != SymbolTable.NONE && state < node.children.length && node.children[state] != null) {
+            Configuration found = findGeneralization(node.children[state], p, level + 1);
+            if (found != null) {
+                return found;
+            }
+        }
+        return node.wildcard == null ? null : findGeneralization(node.wildcard, p, level + 1);
+    }
+
+    /**
+     * Adds to out every stored cube d such that d implies c (c itself included, if stored).
+     */
+    void collectSpecializations(Configuration c, List<Configuration> out) {
+        for (Configuration u : unpackable) {
+            if (u.implies(c)) {
+                out.add(u);
+            }
+        }
+        int[] p = c.packedStates();
+        if (p == null) {
+            List<Configuration> all = new ArrayList<>();
+            collect(root, all);
+            for (Configuration d : all) {
+                if (d.implies(c)) {
+                    out.add(d);
+                }
+            }
+            return;
+        }
+        collectSpecializations(root, p, 0, out);
+    }
+
+    private static void collectSpecializations(Node node, int[] p, int level, List<Configuration> out) {
+        if (level >= p.length) {
+            collect(node, out);
+            return;
+        }
+        int state = p[level];
+        if (state == SymbolTable.NONE) {
+            if (node.wildcard != null) {
+                collectSpecializations(node.wildcard, p, level + 1, out);
+            }
+            for (Node child : node.children) {
+                if (child != null) {
+                    collectSpecializations(child, p, level + 1, out);
+                }
+            }
+        } else if (state < node.children.length && node.children[state] != null) {
+            collectSpecializations(node.children[state], p, level + 1, out);
+        }
+    }
+
+    private static void collect(Node node, List<Configuration> out) {
+        if (node.stored != null) {
+            out.add(node.stored);
+        }
+        if (node.wildcard != null) {
+            collect(node.wildcard, out);
+        }
+        for (Node child : node.children) {
+            if (child != null) {
+                collect(child, out);
+            }
+        }
+    }
+}
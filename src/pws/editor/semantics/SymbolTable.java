@@ -0,0 +1,190 @@
+package pws.editor.semantics;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assembly-scoped table that interns machine ids and state names into small integers.
+ *
+ * <p>Machines are numbered from 0 in the order they are first seen; the states of each machine are
+ * numbered from 0 independently. The table is append-only: an index, once assigned, never changes,
+ * so packed representations built on it (see {@link Configuration}) stay valid when machines or states
+ * are added to the assembly later. Removed or renamed symbols simply stop being used.</p>
+ *
+ * <p>Tables are shared per assembly id, the same key {@link Configuration} and {@link Semantics}
+ * use to tell assemblies apart. Lookups are lock-free; interning a new symbol is synchronized.</p>
+ *
+ * <p>The registry holds tables weakly. Whatever keeps indices of a table also keeps the table itself
+ * (configurations, compiled propositions, cursors), so a table is only dropped once no index of it is left, and
+ * the next {@link #forAssembly(String)} for that id starts a fresh one. Closed models thus release their
+ * symbols instead of growing the registry for the life of the JVM.</p>
+ */
+public final class SymbolTable {
+    /** Sentinel for "machine or state not in the table" and for an unconstrained machine. */
+    public static final int NONE = -1;
+
+    private static final Map<String, TableReference> TABLES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<SymbolTable> RELEASED = new ReferenceQueue<>();
+
+    private final String assemblyId;
+    private final Map<String, Integer> machineIndex = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Integer>> stateIndex = new ConcurrentHashMap<>();
+    private volatile String[] machineNames = new String[0];
+    private volatile String[][] stateNames = new String[0][];
+
+    private SymbolTable(String assemblyId) {
+        this.assemblyId = assemblyId;
+    }
+
+    /**
+     * @return the symbol table shared by every Configuration of the given assembly
+     */
+    public static SymbolTable forAssembly(String assemblyId) {
+        TableReference ref = TABLES.get(assemblyId);
+        SymbolTable table = ref != null ? ref.get() : null;
+        return table != null ? table : forAssemblySlow(assemblyId);
+    }
+
+    private static SymbolTable forAssemblySlow(String assemblyId) {
+        expungeReleased();
+        SymbolTable[] result = new SymbolTable[1];
+        TABLES.compute(assemblyId, (id, ref) -> {
+            SymbolTable table = ref != null ? ref.get() : null;
+            if (table == null) {
+                table = new SymbolTable(id);
+                ref = new TableReference(table);
+            }
+            result[0] = table;
+            return ref;
+        });
+        return result[0];
+    }
+
+    /**
+     * Drops the registry entries of the tables that were garbage collected.
+     */
+    private static void expungeReleased() {
+        Reference<? extends SymbolTable> r;
+        while ((r = RELEASED.poll()) != null) {
+            TableReference released = (TableReference) r;
+            TABLES.remove(released.assemblyId, released);
+        }
+    }
+
+
+    public String getAssemblyId() {
+        return assemblyId;
+    }
+
+    /**
+     * @return the number of machines interned so far
+     */
+    public int machineCount() {
+        return machineNames.length;
+    }
+
+    /**
+     * @return the number of states interned so far for the given machine index
+     */
+    public int stateCount(int machine) {
+        String[][] names = stateNames;
+        return machine < names.length ? names[machine].length : 0;
+    }
+
+    /**
+     * @return the index of machineId, or {@link #NONE} if it was never interned
+     */
+    public int machineIndexOf(String machineId) {
+        Integer i = machineIndex.get(machineId);
+        return i == null ? NONE : i;
+    }
+
+    /**
+     * @return the index of stateName within machineId, or {@link #NONE} if it was never interned
+     */
+    public int stateIndexOf(String machineId, String stateName) {
+        Map<String, Integer> states = stateIndex.get(machineId);
+        if (states == null) {
+            return NONE;
+        }
+        Integer i = states.get(stateName);
+        return i == null ? NONE : i;
+    }
+
+    /**
+     * @return the index of machineId, assigning a new one if needed
+     */
+    public int internMachine(String machineId) {
+        Integer i = machineIndex.get(machineId);
+        return i != null ? i : internMachineSlow(machineId);
+    }
+
+    private synchronized int internMachineSlow(String machineId) {
+        Integer i = machineIndex.get(machineId);
+        if (i != null) {
+            return i;
+        }
+        int index = machineNames.length;
+        String[] names = Arrays.copyOf(machineNames, index + 1);
+        names[index] = machineId;
+        String[][] states = Arrays.copyOf(stateNames, index + 1);
+        states[index] = new String[0];
+        stateIndex.put(machineId, new ConcurrentHashMap<>());
+        // Publish the reverse tables before the forward one, so that any index a reader can obtain is resolvable.
+        stateNames = states;
+        machineNames = names;
+        machineIndex.put(machineId, index);
+        return index;
+    }
+
+    /**
+     * @return the index of stateName within machineId, interning both if needed
+     */
+    public int internState(String machineId, String stateName) {
+        Map<String, Integer> states = stateIndex.get(machineId);
+        if (states != null) {
+            Integer i = states.get(stateName);
+            if (i != null) {
+                return i;
+            }
+        }
+        return internStateSlow(machineId, stateName);
+    }
+
+    private synchronized int internStateSlow(String machineId, String stateName) {
+        int machine = internMachine(machineId);
+        Map<String, Integer> states = stateIndex.get(machineId);
+        Integer i = states.get(stateName);
+        if (i != null) {
+            return i;
+        }
+        String[][] all = stateNames.clone();
+        int index = all[machine].length;
+        all[machine] = Arrays.copyOf(all[machine], index + 1);
+        all[machine][index] = stateName;
+        stateNames = all;
+        states.put(stateName, index);
+        return index;
+    }
+
+    public String machineName(int machine) {
+        return machineNames[machine];
+    }
+
+    public String stateName(int machine, int state) {
+        return stateNames[machine][state];
+    }
+
+    private static final class TableReference extends WeakReference<SymbolTable> {
+        final String assemblyId;
+
+        TableReference(SymbolTable table) {
+            super(table, RELEASED);
+            this.assemblyId = table.assemblyId;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package pws.editor.semantics.bdd;
+
+import java.util.Arrays;
+
+/**
+ * A small reduced ordered binary decision diagram (ROBDD) package.
+ *
+ * <p>Nodes are identified by int handles. Handles {@link #FALSE} and {@link #TRUE} are the two
+ * terminals; every other handle refers to a node {@code (var, low, high)} stored in parallel arrays.
+ * Nodes are hash-consed through a unique table, so two handles are equal if and only if they denote
+ * the same boolean function: equality and emptiness tests are O(1).</p>
+ *
+ * <p>Binary operations are memoized in a direct-mapped operation cache. Entries may be overwritten
+ * by later operations, which only costs recomputation. Nodes are never garbage collected: a BDD
+ * instance is meant to live for one semantics computation and then be dropped as a whole.</p>
+ *
+ * <p>Variables are numbered from 0; a lower number means closer to the root.</p>
+ */
+public class BDD {
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_DIFF = 2;
+    private static final int OP_NOT = 3;
+    private static final int OP_EXISTS = 4;
+
+    private final int varCount;
+
+    // Node store
+    private int[] var;
+    private int[] low;
+    private int[] high;
+    private int[] next;     // chaining inside the unique table
+    private int[] buckets;  // heads of the unique table chains, -1 when empty
+    private int size;
+
+    // Operation cache
+    private final int[] cacheOp;
+    private final int[] cacheA;
+    private final int[] cacheB;
+    private final int[] cacheResult;
+    private final int cacheMask;
+
+    /**
+     * Creates a BDD package with the given number of variables.
+     *
+     * @param varCount number of boolean variables
+     */
+    public BDD(int varCount) {
+        this(varCount, 1 << 10, 1 << 16);
+    }
+
+    /**
+     * @param varCount        number of boolean variables
+     * @param initialNodes    initial capacity of the node store (rounded up to a power of two)
+     * @param cacheSize       number of entries of the operation cache (rounded up to a power of two)
+     */
+    public BDD(int varCount, int initialNodes, int cacheSize) {
+        this.varCount = varCount;
+        int capacity = Integer.highestOneBit(Math.max(4, initialNodes - 1)) << 1;
+        var = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        next = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        // Terminals: their variable index is past the last variable so that they sort below every node.
+        var[FALSE] = varCount;
+        var[TRUE] = varCount;
+        low[TRUE] = high[TRUE] = TRUE;
+        size = 2;
+
+        int entries = Integer.highestOneBit(Math.max(2, cacheSize - 1)) << 1;
+        cacheOp = new int[entries];
+        cacheA = new int[entries];
+        cacheB = new int[entries];
+        cacheResult = new int[entries];
+        Arrays.fill(cacheOp, -1);
+        cacheMask = entries - 1;
+    }
+
+    public int getVarCount() {
+        return varCount;
+    }
+
+    /**
+     * @return the number of nodes allocated so far, terminals included
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    public int var(int node) {
+        return var[node];
+    }
+
+    public int low(int node) {
+        return low[node];
+    }
+
+    public int high(int node) {
+        return high[node];
+    }
+
+    /**
+     * @return the function that is true exactly when variable v is true
+     */
+    public int ithVar(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    /**
+     * @return the function that is true exactly when variable v is false
+     */
+    public int nithVar(int v) {
+        return mk(v, TRUE, FALSE);
+    }
+
+    /**
+     * Returns the unique node (v, l, h). The caller must guarantee that v is smaller than the
+     * variables of l and h.
+     */
+    int mk(int v, int l, int h) {
+        if (l == h) {
+            return l;
+        }
+        int bucket = hash(v, l, h) & (buckets.length - 1);
+        for (int n = buckets[bucket]; n != -1; n = next[n]) {
+            if (var[n] == v && low[n] == l && high[n] == h) {
+                return n;
+            }
+        }
+        if (size == var.length) {
+            grow();
+            bucket = hash(v, l, h) & (buckets.length - 1);
+        }
+        int n = size++;
+        var[n] = v;
+        low[n] = l;
+        high[n] = h;
+        next[n] = buckets[bucket];
+        buckets[bucket] = n;
+        return n;
+    }
+
+    private void grow() {
+        int capacity = var.length << 1;
+        var = Arrays.copyOf(var, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+        next = Arrays.copyOf(next, capacity);
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int n = 2; n < size; n++) {
+            int bucket = hash(var[n], low[n], high[n]) & (capacity - 1);
+            next[n] = buckets[bucket];
+            buckets[bucket] = n;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    // ------------------------------------------------------------------
+    // Boolean operations
+    // ------------------------------------------------------------------
+
+    public int and(int a, int b) {
+        return apply(OP_AND, a, b);
+    }
+
+    public int or(int a, int b) {
+        return apply(OP_OR, a, b);
+    }
+
+    /**
+     * @return a AND NOT b
+     */
+    public int diff(int a, int b) {
+        return apply(OP_DIFF, a, b);
+    }
+
+    public int not(int a) {
+        if (a == FALSE) return TRUE;
+        if (a == TRUE) return FALSE;
+        int slot = cacheSlot(OP_NOT, a, 0);
+        if (cacheOp[slot] == OP_NOT && cacheA[slot] == a) {
+            return cacheResult[slot];
+        }
+        int r = mk(var[a], not(low[a]), not(high[a]));
+        store(slot, OP_NOT, a, 0, r);
+        return r;
+    }
+
+    private int apply(int op, int a, int b) {
+        switch (op) {
+            case OP_AND:
+                if (a == FALSE || b == FALSE) return FALSE;
+                if (a == TRUE || a == b) return b;
+                if (b == TRUE) return a;
+                if (a > b) { int t = a; a = b; b = t; }
+                break;
+            case OP_OR:
+                if (a == TRUE || b == TRUE) return TRUE;
+                if (a == FALSE || a == b) return b;
+                if (b == FALSE) return a;
+                if (a > b) { int t = a; a = b; b = t; }
+                break;
+            default: // OP_DIFF
+                if (a == FALSE || b == TRUE || a == b) return FALSE;
+                if (b == FALSE) return a;
+                if (a == TRUE) return not(b);
+                break;
+        }
+        int slot = cacheSlot(op, a, b);
+        if (cacheOp[slot] == op && cacheA[slot] == a && cacheB[slot] == b) {
+            return cacheResult[slot];
+        }
+        int va = var[a];
+        int vb = var[b];
+        int v = Math.min(va, vb);
+        int aLow = va == v ? low[a] : a;
+        int aHigh = va == v ? high[a] : a;
+        int bLow = vb == v ? low[b] : b;
+        int bHigh = vb == v ? high[b] : b;
+        int r = mk(v, apply(op, aLow, bLow), apply(op, aHigh, bHigh));
+        store(slot, op, a, b, r);
+        return r;
+    }
+
+    /**
+     * Existentially quantifies the contiguous range of variables [firstVar, lastVar).
+     */
+    public int exists(int f, int firstVar, int lastVar) {
+        if (f == FALSE || f == TRUE || var[f] >= lastVar) {
+            return f;
+        }
+        int key = (firstVar << 16) | lastVar;
+        int slot = cacheSlot(OP_EXISTS, f, key);
+        if (cacheOp[slot] == OP_EXISTS && cacheA[slot] == f && cacheB[slot] == key) {
+            return cacheResult[slot];
+        }
+        int l = exists(low[f], firstVar, lastVar);
+        int h = exists(high[f], firstVar, lastVar);
+        int r = var[f] < firstVar ? mk(var[f], l, h) : or(l, h);
+        store(slot, OP_EXISTS, f, key, r);
+        return r;
+    }
+
+    private int cacheSlot(int op, int a, int b) {
+        return hash(op, a, b) & cacheMask;
+    }
+
+    private void store(int slot, int op, int a, int b, int r) {
+        cacheOp[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheResult[slot] = r;
+    }
+
+    // ------------------------------------------------------------------
+    // Path enumeration
+    // ------------------------------------------------------------------
+
+    /**
+     * Receives the satisfying paths of a BDD. The assignment array holds, for each variable,
+     * 0 or 1 when the variable is tested on the path and -1 when it is free. The array is
+     * reused across calls and must not be retained.
+     */
+    public interface PathVisitor {
+        void visit(int[] assignment);
+    }
+
+    /**
+     * Enumerates every path from f to the TRUE terminal.
+     */
+    public void forEachPath(int f, PathVisitor visitor) {
+        int[] assignment = new int[varCount];
+        Arrays.fill(assignment, -1);
+        forEachPath(f, assignment, visitor);
+    }
+
+    private void forEachPath(int f, int[] assignment, PathVisitor visitor) {
+        if (f == FALSE) {
+            return;
+        }
+        if (f == TRUE) {
+            visitor.visit(assignment);
+            return;
+        }
+        int v = var[f];
+        assignment[v] = 0;
+        forEachPath(low[f], assignment, visitor);
+        assignment[v] = 1;
+        forEachPath(high[f], assignment, visitor);
+        assignment[v] = -1;
+    }
+}
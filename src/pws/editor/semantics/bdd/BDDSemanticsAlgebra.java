@@ -0,0 +1,317 @@
+package pws.editor.semantics.bdd;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsAlgebra;
+import smalgebra.AndProposition;
+import smalgebra.BasicStateProposition;
+import smalgebra.FalseProposition;
+import smalgebra.NotProposition;
+import smalgebra.OrProposition;
+import smalgebra.SMProposition;
+import smalgebra.TrueProposition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SemanticsAlgebra} backed by a {@link BDD}.
+ *
+ * <p>Each component machine of the assembly is encoded with {@code ceil(log2(n))} boolean variables,
+ * where {@code n} is the number of its non-pseudo states. Machines are laid out in the insertion order of
+ * {@link Assembly#getStateMachines()}, most significant bit first. Bit patterns that do not correspond to a
+ * state are excluded by intersecting every result with the domain of the encoding, so that {@link #top()}
+ * denotes exactly the universe returned by {@link Assembly#generateUniverse()}.</p>
+ *
+ * <p>The encoding is a snapshot of the assembly taken at construction time: an instance must be dropped
+ * when machines or states are added or removed.</p>
+ */
+public class BDDSemanticsAlgebra implements SemanticsAlgebra<Integer> {
+    private final Assembly assembly;
+    private final BDD bdd;
+
+    private final String[] machineIds;
+    private final String[][] stateNames;
+    private final int[] firstVar;
+    private final int[] bitCount;
+    private final int[][] stateCodes;
+    private final Map<String, Integer> machineIndex = new HashMap<>();
+    private final List<Map<String, Integer>> stateIndex = new ArrayList<>();
+    private final int domain;
+
+    public BDDSemanticsAlgebra(Assembly assembly) {
+        this.assembly = assembly;
+
+        List<String> ids = new ArrayList<>();
+        List<String[]> names = new ArrayList<>();
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            List<String> states = new ArrayList<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (!"PseudoState".equals(s.getName())) {
+                    states.add(s.getName());
+                }
+            }
+            // Machines without states do not constrain the universe (see Assembly.generateUniverse).
+            if (!states.isEmpty()) {
+                ids.add(entry.getKey());
+                names.add(states.toArray(new String[0]));
+            }
+        }
+        machineIds = ids.toArray(new String[0]);
+        stateNames = names.toArray(new String[0][]);
+        firstVar = new int[machineIds.length];
+        bitCount = new int[machineIds.length];
+        int vars = 0;
+        for (int k = 0; k < machineIds.length; k++) {
+            int n = stateNames[k].length;
+            firstVar[k] = vars;
+            bitCount[k] = n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+            vars += bitCount[k];
+            machineIndex.put(machineIds[k], k);
+            Map<String, Integer> byName = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                byName.putIfAbsent(stateNames[k][i], i);
+            }
+            stateIndex.add(byName);
+        }
+        bdd = new BDD(vars);
+
+        stateCodes = new int[machineIds.length][];
+        int dom = BDD.TRUE;
+        // Build bottom-up so that each conjunction only touches the top of the diagram.
+        for (int k = machineIds.length - 1; k >= 0; k--) {
+            int n = stateNames[k].length;
+            stateCodes[k] = new int[n];
+            int machineDomain = BDD.FALSE;
+            for (int i = 0; i < n; i++) {
+                stateCodes[k][i] = encode(k, i);
+                machineDomain = bdd.or(machineDomain, stateCodes[k][i]);
+            }
+            dom = bdd.and(machineDomain, dom);
+        }
+        domain = dom;
+    }
+
+    private int encode(int k, int i) {
+        int r = BDD.TRUE;
+        for (int j = bitCount[k] - 1; j >= 0; j--) {
+            int v = firstVar[k] + j;
+            boolean bit = ((i >> (bitCount[k] - 1 - j)) & 1) != 0;
+            r = bit ? bdd.mk(v, BDD.FALSE, r) : bdd.mk(v, r, BDD.FALSE);
+        }
+        return r;
+    }
+
+    /**
+     * @return the underlying decision diagram package, e.g. to inspect its node count
+     */
+    public BDD getBDD() {
+        return bdd;
+    }
+
+    @Override
+    public Assembly getAssembly() {
+        return assembly;
+    }
+
+    @Override
+    public Integer bottom() {
+        return BDD.FALSE;
+    }
+
+    @Override
+    public Integer top() {
+        return domain;
+    }
+
+    /**
+     * Returns the set of configurations in which machineId is in stateName, or FALSE when the
+     * machine or the state is not part of the encoding (e.g. the pseudostate).
+     */
+    private int stateIs(String machineId, String stateName) {
+        Integer k = machineIndex.get(machineId);
+        if (k == null) {
+            return BDD.FALSE;
+        }
+        Integer i = stateIndex.get(k).get(stateName);
+        return i == null ? BDD.FALSE : stateCodes[k][i];
+    }
+
+    @Override
+    public Integer fromSemantics(Semantics semantics) {
+        int result = BDD.FALSE;
+        for (Configuration c : semantics.getConfigurations()) {
+            int cube = BDD.TRUE;
+            for (BasicStateProposition bsp : c.getBasicStatePropositions()) {
+                cube = bdd.and(cube, stateIs(bsp.getMachineId(), bsp.getStateName()));
+                if (cube == BDD.FALSE) {
+                    break;
+                }
+            }
+            result = bdd.or(result, cube);
+        }
+        return bdd.and(result, domain);
+    }
+
+    @Override
+    public Integer fromProposition(SMProposition proposition) {
+        return bdd.and(compile(proposition), domain);
+    }
+
+    private int compile(SMProposition p) {
+        if (p instanceof BasicStateProposition) {
+            BasicStateProposition bsp = (BasicStateProposition) p;
+            return stateIs(bsp.getMachineId(), bsp.getStateName());
+        } else if (p instanceof AndProposition) {
+            AndProposition and = (AndProposition) p;
+            return bdd.and(compile(and.getLeft()), compile(and.getRight()));
+        } else if (p instanceof OrProposition) {
+            OrProposition or = (OrProposition) p;
+            return bdd.or(compile(or.getLeft()), compile(or.getRight()));
+        } else if (p instanceof NotProposition) {
+            return bdd.diff(domain, compile(((NotProposition) p).getProposition()));
+        } else if (p instanceof TrueProposition) {
+            return domain;
+        } else if (p instanceof FalseProposition) {
+            return BDD.FALSE;
+        }
+        // Unknown proposition kinds fall back to the explicit evaluation.
+        return fromSemantics(p.toSemantics(assembly));
+    }
+
+    @Override
+    public Semantics toSemantics(Integer s) {
+        String assemblyId = assembly.getAssemblyId();
+        Semantics result = new Semantics(assemblyId);
+        bdd.forEachPath(s, assignment -> {
+            // For every machine, the states compatible with the bits fixed along the path;
+            // null when every state is compatible, i.e. the machine is unconstrained.
+            List<List<BasicStateProposition>> choices = new ArrayList<>();
+            for (int k = 0; k < machineIds.length; k++) {
+                List<BasicStateProposition> compatible = new ArrayList<>();
+                for (int i = 0; i < stateNames[k].length; i++) {
+                    if (matches(assignment, k, i)) {
+                        compatible.add(new BasicStateProposition(machineIds[k], stateNames[k][i]));
+                    }
+                }
+                if (compatible.size() < stateNames[k].length) {
+                    choices.add(compatible);
+                }
+            }
+            addCubes(result, assemblyId, choices, 0, new ArrayList<>());
+        });
+        return result;
+    }
+
+    private boolean matches(int[] assignment, int k, int i) {
+        for (int j = 0; j < bitCount[k]; j++) {
+            int fixed = assignment[firstVar[k] + j];
+            int bit = (i >> (bitCount[k] - 1 - j)) & 1;
+            if (fixed != -1 && fixed != bit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addCubes(Semantics result, String assemblyId,
+                                 List<List<BasicStateProposition>> choices, int depth,
+                                 List<BasicStateProposition> current) {
+        if (depth == choices.size()) {
+            result.addConfiguration(Configuration.fromBasicStatePropositions(assemblyId, new ArrayList<>(current)));
+            return;
+        }
+        for (BasicStateProposition bsp : choices.get(depth)) {
+            current.add(bsp);
+            addCubes(result, assemblyId, choices, depth + 1, current);
+            current.remove(current.size() - 1);
+        }
+    }
+
+    @Override
+    public Integer AND(Integer a, Integer b) {
+        return bdd.and(a, b);
+    }
+
+    @Override
+    public Integer OR(Integer a, Integer b) {
+        return bdd.or(a, b);
+    }
+
+    @Override
+    public Integer NOT(Integer a) {
+        return bdd.diff(domain, a);
+    }
+
+    @Override
+    public Integer DIFF(Integer a, Integer b) {
+        return bdd.diff(a, b);
+    }
+
+    @Override
+    public boolean LEQ(Integer a, Integer b) {
+        return bdd.diff(a, b) == BDD.FALSE;
+    }
+
+    @Override
+    public boolean EQ(Integer a, Integer b) {
+        return a.intValue() == b.intValue();
+    }
+
+    @Override
+    public boolean ISEMPTY(Integer a) {
+        return a == BDD.FALSE;
+    }
+
+    /**
+     * Moves the configurations of s in which machineId is in sourceState to targetState.
+     *
+     * @return the image of the domain {@code s AND machineId.sourceState}
+     */
+    private int image(int domainOfT, String machineId, String targetState) {
+        int k = machineIndex.get(machineId);
+        int released = bdd.exists(domainOfT, firstVar[k], firstVar[k] + bitCount[k]);
+        return bdd.and(released, stateIs(machineId, targetState));
+    }
+
+    @Override
+    public Integer transformByMachineEvent(Integer s, String machineId, String eventName) {
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
+        }
+        List<TransitionInterface> triggered = machine.getTransitionsTriggeredBy(eventName);
+        if (triggered.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "No transition triggered by event " + eventName + " found in machine " + machineId);
+        }
+
+        int allDomains = BDD.FALSE;
+        int codomainUnion = BDD.FALSE;
+        for (TransitionInterface ti : triggered) {
+            int d = bdd.and(s, stateIs(machineId, ti.getSource().getName()));
+            if (d != BDD.FALSE) {
+                codomainUnion = bdd.or(codomainUnion, image(d, machineId, ti.getTarget().getName()));
+                allDomains = bdd.or(allDomains, d);
+            }
+        }
+        return bdd.or(bdd.diff(s, allDomains), codomainUnion);
+    }
+
+    @Override
+    public Integer transformByMachineTransition(Integer s, String machineId, Transition transition) {
+        int source = stateIs(machineId, transition.getSource().getName());
+        int d = bdd.and(s, source);
+        if (d == BDD.FALSE) {
+            return s;
+        }
+        return bdd.or(bdd.diff(s, source), image(d, machineId, transition.getTarget().getName()));
+    }
+}
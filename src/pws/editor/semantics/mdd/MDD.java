@@ -0,0 +1,493 @@
+package pws.editor.semantics.mdd;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A reduced ordered multi-valued decision diagram (MDD) package.
+ *
+ * <p>Variable {@code v} ranges over {@code 0 .. domainSize(v) - 1}. Nodes are identified by int handles:
+ * {@link #FALSE} and {@link #TRUE} are the terminals, every other handle refers to a node that tests one
+ * variable and has one child per value. Nodes are hash-consed and fully reduced (a node whose children are
+ * all equal is never created), so equal handles denote equal functions and a variable skipped along a path
+ * is unconstrained on that path.</p>
+ *
+ * <p>Variables are tested in the order given at construction; {@link #reorder(int[], int[])} and
+ * {@link #sift(int[])} rebuild diagrams under a different order. Binary operations and complement are
+ * memoized in a direct-mapped cache. Nodes are never garbage collected.</p>
+ */
+public class MDD {
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_DIFF = 2;
+    private static final int OP_NOT = 3;
+    private static final int OP_EXISTS = 4;
+    private static final int OP_RESTRICT = 5;
+
+    private final int[] domainSizes;
+    private final int[] varAtLevel;
+    private final int[] levelOfVar;
+
+    // Node store
+    private int[] var;
+    private int[][] children;
+    private int[] next;
+    private int[] buckets;
+    private int size;
+
+    // Operation cache
+    private final int[] cacheOp;
+    private final int[] cacheA;
+    private final int[] cacheB;
+    private final int[] cacheResult;
+    private final int cacheMask;
+
+    /**
+     * Creates an MDD package whose variables are tested in index order.
+     *
+     * @param domainSizes number of values of each variable
+     */
+    public MDD(int[] domainSizes) {
+        this(domainSizes, identity(domainSizes.length));
+    }
+
+    /**
+     * @param domainSizes number of values of each variable
+     * @param varAtLevel  the variable tested at each level, from the root down
+     */
+    public MDD(int[] domainSizes, int[] varAtLevel) {
+        if (varAtLevel.length != domainSizes.length) {
+            throw new IllegalArgumentException("The order must contain every variable exactly once.");
+        }
+        this.domainSizes = domainSizes.clone();
+        this.varAtLevel = varAtLevel.clone();
+        this.levelOfVar = new int[domainSizes.length];
+        Arrays.fill(levelOfVar, -1);
+        for (int level = 0; level < varAtLevel.length; level++) {
+            if (levelOfVar[varAtLevel[level]] != -1) {
+                throw new IllegalArgumentException("The order must contain every variable exactly once.");
+            }
+            levelOfVar[varAtLevel[level]] = level;
+        }
+
+        int capacity = 1 << 10;
+        var = new int[capacity];
+        children = new int[capacity][];
+        next = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        var[FALSE] = -1;
+        var[TRUE] = -1;
+        size = 2;
+
+        int entries = 1 << 16;
+        cacheOp = new int[entries];
+        cacheA = new int[entries];
+        cacheB = new int[entries];
+        cacheResult = new int[entries];
+        Arrays.fill(cacheOp, -1);
+        cacheMask = entries - 1;
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    public int getVarCount() {
+        return domainSizes.length;
+    }
+
+    public int getDomainSize(int v) {
+        return domainSizes[v];
+    }
+
+    /**
+     * @return a copy of the variable order, from the root down
+     */
+    public int[] getOrder() {
+        return varAtLevel.clone();
+    }
+
+    /**
+     * @return the number of nodes allocated so far, terminals included
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    public boolean isTerminal(int node) {
+        return node == FALSE || node == TRUE;
+    }
+
+    /**
+     * @return the variable tested by a non-terminal node
+     */
+    public int var(int node) {
+        return var[node];
+    }
+
+    public int child(int node, int value) {
+        return children[node][value];
+    }
+
+    private int level(int node) {
+        return isTerminal(node) ? domainSizes.length : levelOfVar[var[node]];
+    }
+
+    /**
+     * @return the function that is true exactly when variable v has the given value
+     */
+    public int valueIs(int v, int value) {
+        int[] kids = new int[domainSizes[v]];
+        kids[value] = TRUE;
+        return mk(v, kids);
+    }
+
+    /**
+     * Returns the unique node testing v with the given children. The array is owned by the MDD afterwards.
+     */
+    int mk(int v, int[] kids) {
+        boolean allEqual = true;
+        for (int i = 1; i < kids.length && allEqual; i++) {
+            allEqual = kids[i] == kids[0];
+        }
+        if (allEqual) {
+            return kids[0];
+        }
+        int h = hash(v, kids);
+        int bucket = h & (buckets.length - 1);
+        for (int n = buckets[bucket]; n != -1; n = next[n]) {
+            if (var[n] == v && Arrays.equals(children[n], kids)) {
+                return n;
+            }
+        }
+        if (size == var.length) {
+            grow();
+            bucket = h & (buckets.length - 1);
+        }
+        int n = size++;
+        var[n] = v;
+        children[n] = kids;
+        next[n] = buckets[bucket];
+        buckets[bucket] = n;
+        return n;
+    }
+
+    private void grow() {
+        int capacity = var.length << 1;
+        var = Arrays.copyOf(var, capacity);
+        children = Arrays.copyOf(children, capacity);
+        next = Arrays.copyOf(next, capacity);
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int n = 2; n < size; n++) {
+            int bucket = hash(var[n], children[n]) & (capacity - 1);
+            next[n] = buckets[bucket];
+            buckets[bucket] = n;
+        }
+    }
+
+    private static int hash(int v, int[] kids) {
+        int h = v * 0x9E3779B1 + Arrays.hashCode(kids);
+        return h ^ (h >>> 15);
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    // ------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------
+
+    public int and(int a, int b) {
+        return apply(OP_AND, a, b);
+    }
+
+    public int or(int a, int b) {
+        return apply(OP_OR, a, b);
+    }
+
+    /**
+     * @return a AND NOT b
+     */
+    public int diff(int a, int b) {
+        return apply(OP_DIFF, a, b);
+    }
+
+    public int not(int a) {
+        if (a == FALSE) return TRUE;
+        if (a == TRUE) return FALSE;
+        int slot = hash(OP_NOT, a, 0) & cacheMask;
+        if (cacheOp[slot] == OP_NOT && cacheA[slot] == a) {
+            return cacheResult[slot];
+        }
+        int[] kids = new int[children[a].length];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = not(children[a][i]);
+        }
+        int r = mk(var[a], kids);
+        store(slot, OP_NOT, a, 0, r);
+        return r;
+    }
+
+    private int apply(int op, int a, int b) {
+        switch (op) {
+            case OP_AND:
+                if (a == FALSE || b == FALSE) return FALSE;
+                if (a == TRUE || a == b) return b;
+                if (b == TRUE) return a;
+                if (a > b) { int t = a; a = b; b = t; }
+                break;
+            case OP_OR:
+                if (a == TRUE || b == TRUE) return TRUE;
+                if (a == FALSE || a == b) return b;
+                if (b == FALSE) return a;
+                if (a > b) { int t = a; a = b; b = t; }
+                break;
+            default: // OP_DIFF
+                if (a == FALSE || b == TRUE || a == b) return FALSE;
+                if (b == FALSE) return a;
+                if (a == TRUE) return not(b);
+                break;
+        }
+        int slot = hash(op, a, b) & cacheMask;
+        if (cacheOp[slot] == op && cacheA[slot] == a && cacheB[slot] == b) {
+            return cacheResult[slot];
+        }
+        int la = level(a);
+        int lb = level(b);
+        int v = la <= lb ? var[a] : var[b];
+        int[] kids = new int[domainSizes[v]];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = apply(op, la <= lb ? children[a][i] : a, lb <= la ? children[b][i] : b);
+        }
+        int r = mk(v, kids);
+        store(slot, op, a, b, r);
+        return r;
+    }
+
+    /**
+     * Existentially quantifies variable v.
+     */
+    public int exists(int f, int v) {
+        if (isTerminal(f) || level(f) > levelOfVar[v]) {
+            return f;
+        }
+        int slot = hash(OP_EXISTS, f, v) & cacheMask;
+        if (cacheOp[slot] == OP_EXISTS && cacheA[slot] == f && cacheB[slot] == v) {
+            return cacheResult[slot];
+        }
+        int r;
+        if (var[f] == v) {
+            r = FALSE;
+            for (int child : children[f]) {
+                r = or(r, child);
+            }
+        } else {
+            int[] kids = new int[children[f].length];
+            for (int i = 0; i < kids.length; i++) {
+                kids[i] = exists(children[f][i], v);
+            }
+            r = mk(var[f], kids);
+        }
+        store(slot, OP_EXISTS, f, v, r);
+        return r;
+    }
+
+    /**
+     * @return the cofactor of f with respect to v = value
+     */
+    public int restrict(int f, int v, int value) {
+        if (isTerminal(f) || level(f) > levelOfVar[v]) {
+            return f;
+        }
+        if (var[f] == v) {
+            return children[f][value];
+        }
+        int key = (v << 16) | value;
+        int slot = hash(OP_RESTRICT, f, key) & cacheMask;
+        if (cacheOp[slot] == OP_RESTRICT && cacheA[slot] == f && cacheB[slot] == key) {
+            return cacheResult[slot];
+        }
+        int[] kids = new int[children[f].length];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = restrict(children[f][i], v, value);
+        }
+        int r = mk(var[f], kids);
+        store(slot, OP_RESTRICT, f, key, r);
+        return r;
+    }
+
+    private void store(int slot, int op, int a, int b, int r) {
+        cacheOp[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheResult[slot] = r;
+    }
+
+    // ------------------------------------------------------------------
+    // Path enumeration
+    // ------------------------------------------------------------------
+
+    /**
+     * Receives the satisfying paths of an MDD. The assignment array holds, for each variable, its value
+     * on the path or -1 when the variable is not tested. The array is reused and must not be retained.
+     */
+    public interface PathVisitor {
+        void visit(int[] assignment);
+    }
+
+    /**
+     * Enumerates every path from f to the TRUE terminal. Paths denote pairwise disjoint cubes.
+     */
+    public void forEachPath(int f, PathVisitor visitor) {
+        int[] assignment = new int[domainSizes.length];
+        Arrays.fill(assignment, -1);
+        forEachPath(f, assignment, visitor);
+    }
+
+    private void forEachPath(int f, int[] assignment, PathVisitor visitor) {
+        if (f == FALSE) {
+            return;
+        }
+        if (f == TRUE) {
+            visitor.visit(assignment);
+            return;
+        }
+        int v = var[f];
+        for (int i = 0; i < children[f].length; i++) {
+            assignment[v] = i;
+            forEachPath(children[f][i], assignment, visitor);
+        }
+        assignment[v] = -1;
+    }
+
+    /**
+     * @return the number of distinct nodes reachable from the given roots, terminals included
+     */
+    public int countNodes(int[] roots) {
+        boolean[] seen = new boolean[size];
+        int count = 0;
+        int[] stack = new int[size];
+        int top = 0;
+        for (int r : roots) {
+            if (!seen[r]) {
+                seen[r] = true;
+                stack[top++] = r;
+            }
+        }
+        while (top > 0) {
+            int n = stack[--top];
+            count++;
+            if (!isTerminal(n)) {
+                for (int child : children[n]) {
+                    if (!seen[child]) {
+                        seen[child] = true;
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------
+    // Reordering
+    // ------------------------------------------------------------------
+
+    /**
+     * Rebuilds the given roots in a fresh MDD that tests the variables in a different order.
+     *
+     * @param newVarAtLevel the new order, from the root down
+     * @param roots         handles of this MDD; on return they are replaced by the handles of the new MDD
+     * @return the new MDD
+     */
+    public MDD reorder(int[] newVarAtLevel, int[] roots) {
+        MDD target = new MDD(domainSizes, newVarAtLevel);
+        Map<Long, Integer> memo = new HashMap<>();
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = rebuild(target, 0, roots[i], memo);
+        }
+        return target;
+    }
+
+    private int rebuild(MDD target, int level, int f, Map<Long, Integer> memo) {
+        if (isTerminal(f)) {
+            return f;
+        }
+        long key = ((long) level << 32) | f;
+        Integer cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int v = target.varAtLevel[level];
+        int[] kids = new int[domainSizes[v]];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = rebuild(target, level + 1, restrict(f, v, i), memo);
+        }
+        int r = target.mk(v, kids);
+        memo.put(key, r);
+        return r;
+    }
+
+    /**
+     * Rudell-style sifting: each variable in turn is tried at every level, keeping the position that
+     * minimizes the number of nodes shared by the roots. Every trial rebuilds the diagram, so this is meant
+     * as an occasional pass over big models rather than something to run after every operation.
+     *
+     * @param roots handles of this MDD; on return they are replaced by the handles of the returned MDD
+     * @return an MDD holding the roots under the best order found (possibly this one)
+     */
+    public MDD sift(int[] roots) {
+        MDD best = this;
+        int[] bestRoots = roots.clone();
+        int bestSize = countNodes(roots);
+        for (int v = 0; v < domainSizes.length; v++) {
+            int[] base = best.getOrder();
+            int from = best.levelOfVar[v];
+            for (int to = 0; to < base.length; to++) {
+                if (to == from) {
+                    continue;
+                }
+                int[] order = moveVar(base, from, to);
+                int[] trialRoots = bestRoots.clone();
+                MDD trial = best.reorder(order, trialRoots);
+                int trialSize = trial.countNodes(trialRoots);
+                if (trialSize < bestSize) {
+                    best = trial;
+                    bestRoots = trialRoots;
+                    bestSize = trialSize;
+                    // Keep sifting v from its new position.
+                    base = order;
+                    from = to;
+                }
+            }
+        }
+        System.arraycopy(bestRoots, 0, roots, 0, roots.length);
+        return best;
+    }
+
+    private static int[] moveVar(int[] order, int from, int to) {
+        int[] result = new int[order.length];
+        int v = order[from];
+        int j = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i != from) {
+                result[j++] = order[i];
+            }
+        }
+        System.arraycopy(result, to, result, to + 1, order.length - 1 - to);
+        result[to] = v;
+        return result;
+    }
+}
@@ -0,0 +1,264 @@
+package pws.editor.semantics.mdd;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsAlgebra;
+import smalgebra.AndProposition;
+import smalgebra.BasicStateProposition;
+import smalgebra.FalseProposition;
+import smalgebra.NotProposition;
+import smalgebra.OrProposition;
+import smalgebra.SMProposition;
+import smalgebra.TrueProposition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SemanticsAlgebra} backed by an {@link MDD} with one variable per component machine.
+ *
+ * <p>The values of a machine's variable are its non-pseudo states, so every path of the diagram is a valid
+ * configuration and the complement needs no domain constraint. A machine that is not tested along a path is
+ * unconstrained, which is exactly a wildcard of a {@link Configuration}: {@link #toSemantics(Integer)} turns
+ * each path into one cube without any expansion.</p>
+ *
+ * <p>Variables follow the insertion order of {@link Assembly#getStateMachines()}. {@link #sift(int[])}
+ * looks for a smaller order. The encoding is a snapshot of the assembly taken at construction time.</p>
+ */
+public class MDDSemanticsAlgebra implements SemanticsAlgebra<Integer> {
+    private final Assembly assembly;
+    private MDD mdd;
+
+    private final String[] machineIds;
+    private final String[][] stateNames;
+    private final Map<String, Integer> machineIndex = new HashMap<>();
+    private final List<Map<String, Integer>> stateIndex = new ArrayList<>();
+
+    public MDDSemanticsAlgebra(Assembly assembly) {
+        this.assembly = assembly;
+
+        List<String> ids = new ArrayList<>();
+        List<String[]> names = new ArrayList<>();
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            List<String> states = new ArrayList<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (!"PseudoState".equals(s.getName())) {
+                    states.add(s.getName());
+                }
+            }
+            // Machines without states do not constrain the universe (see Assembly.generateUniverse).
+            if (!states.isEmpty()) {
+                ids.add(entry.getKey());
+                names.add(states.toArray(new String[0]));
+            }
+        }
+        machineIds = ids.toArray(new String[0]);
+        stateNames = names.toArray(new String[0][]);
+        int[] domainSizes = new int[machineIds.length];
+        for (int k = 0; k < machineIds.length; k++) {
+            domainSizes[k] = stateNames[k].length;
+            machineIndex.put(machineIds[k], k);
+            Map<String, Integer> byName = new HashMap<>();
+            for (int i = 0; i < stateNames[k].length; i++) {
+                byName.putIfAbsent(stateNames[k][i], i);
+            }
+            stateIndex.add(byName);
+        }
+        mdd = new MDD(domainSizes);
+    }
+
+    /**
+     * @return the underlying decision diagram package
+     */
+    public MDD getMDD() {
+        return mdd;
+    }
+
+    /**
+     * Reorders the machines to reduce the size of the given diagrams (see {@link MDD#sift(int[])}).
+     * Handles that are not passed in become invalid.
+     *
+     * @param roots the handles to preserve; they are replaced in place by the handles under the new order
+     */
+    public void sift(int[] roots) {
+        mdd = mdd.sift(roots);
+    }
+
+    /**
+     * @return the machine ids in the order their variables are currently tested
+     */
+    public List<String> getMachineOrder() {
+        List<String> order = new ArrayList<>();
+        for (int v : mdd.getOrder()) {
+            order.add(machineIds[v]);
+        }
+        return order;
+    }
+
+    @Override
+    public Assembly getAssembly() {
+        return assembly;
+    }
+
+    @Override
+    public Integer bottom() {
+        return MDD.FALSE;
+    }
+
+    @Override
+    public Integer top() {
+        return MDD.TRUE;
+    }
+
+    /**
+     * Returns the set of configurations in which machineId is in stateName, or FALSE when the
+     * machine or the state is not part of the encoding (e.g. the pseudostate).
+     */
+    private int stateIs(String machineId, String stateName) {
+        Integer k = machineIndex.get(machineId);
+        if (k == null) {
+            return MDD.FALSE;
+        }
+        Integer i = stateIndex.get(k).get(stateName);
+        return i == null ? MDD.FALSE : mdd.valueIs(k, i);
+    }
+
+    @Override
+    public Integer fromSemantics(Semantics semantics) {
+        int result = MDD.FALSE;
+        for (Configuration c : semantics.getConfigurations()) {
+            int cube = MDD.TRUE;
+            for (BasicStateProposition bsp : c.getBasicStatePropositions()) {
+                cube = mdd.and(cube, stateIs(bsp.getMachineId(), bsp.getStateName()));
+                if (cube == MDD.FALSE) {
+                    break;
+                }
+            }
+            result = mdd.or(result, cube);
+        }
+        return result;
+    }
+
+    @Override
+    public Integer fromProposition(SMProposition p) {
+        if (p instanceof BasicStateProposition) {
+            BasicStateProposition bsp = (BasicStateProposition) p;
+            return stateIs(bsp.getMachineId(), bsp.getStateName());
+        } else if (p instanceof AndProposition) {
+            AndProposition and = (AndProposition) p;
+            return mdd.and(fromProposition(and.getLeft()), fromProposition(and.getRight()));
+        } else if (p instanceof OrProposition) {
+            OrProposition or = (OrProposition) p;
+            return mdd.or(fromProposition(or.getLeft()), fromProposition(or.getRight()));
+        } else if (p instanceof NotProposition) {
+            return mdd.not(fromProposition(((NotProposition) p).getProposition()));
+        } else if (p instanceof TrueProposition) {
+            return MDD.TRUE;
+        } else if (p instanceof FalseProposition) {
+            return MDD.FALSE;
+        }
+        // Unknown proposition kinds fall back to the explicit evaluation.
+        return fromSemantics(p.toSemantics(assembly));
+    }
+
+    @Override
+    public Semantics toSemantics(Integer s) {
+        String assemblyId = assembly.getAssemblyId();
+        Semantics result = new Semantics(assemblyId);
+        mdd.forEachPath(s, assignment -> {
+            List<BasicStateProposition> props = new ArrayList<>();
+            for (int k = 0; k < machineIds.length; k++) {
+                if (assignment[k] != -1) {
+                    props.add(new BasicStateProposition(machineIds[k], stateNames[k][assignment[k]]));
+                }
+            }
+            result.addConfiguration(Configuration.fromBasicStatePropositions(assemblyId, props));
+        });
+        return result;
+    }
+
+    @Override
+    public Integer AND(Integer a, Integer b) {
+        return mdd.and(a, b);
+    }
+
+    @Override
+    public Integer OR(Integer a, Integer b) {
+        return mdd.or(a, b);
+    }
+
+    @Override
+    public Integer NOT(Integer a) {
+        return mdd.not(a);
+    }
+
+    @Override
+    public Integer DIFF(Integer a, Integer b) {
+        return mdd.diff(a, b);
+    }
+
+    @Override
+    public boolean LEQ(Integer a, Integer b) {
+        return mdd.diff(a, b) == MDD.FALSE;
+    }
+
+    @Override
+    public boolean EQ(Integer a, Integer b) {
+        return a.intValue() == b.intValue();
+    }
+
+    @Override
+    public boolean ISEMPTY(Integer a) {
+        return a == MDD.FALSE;
+    }
+
+    /**
+     * @return the image of domainOfT, whose configurations all have machineId in the transition source,
+     *         once machineId is moved to targetState
+     */
+    private int image(int domainOfT, String machineId, String targetState) {
+        int released = mdd.exists(domainOfT, machineIndex.get(machineId));
+        return mdd.and(released, stateIs(machineId, targetState));
+    }
+
+    @Override
+    public Integer transformByMachineEvent(Integer s, String machineId, String eventName) {
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
+        }
+        List<TransitionInterface> triggered = machine.getTransitionsTriggeredBy(eventName);
+        if (triggered.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "No transition triggered by event " + eventName + " found in machine " + machineId);
+        }
+
+        int allDomains = MDD.FALSE;
+        int codomainUnion = MDD.FALSE;
+        for (TransitionInterface ti : triggered) {
+            int d = mdd.and(s, stateIs(machineId, ti.getSource().getName()));
+            if (d != MDD.FALSE) {
+                codomainUnion = mdd.or(codomainUnion, image(d, machineId, ti.getTarget().getName()));
+                allDomains = mdd.or(allDomains, d);
+            }
+        }
+        return mdd.or(mdd.diff(s, allDomains), codomainUnion);
+    }
+
+    @Override
+    public Integer transformByMachineTransition(Integer s, String machineId, Transition transition) {
+        int source = stateIs(machineId, transition.getSource().getName());
+        int d = mdd.and(s, source);
+        if (d == MDD.FALSE) {
+            return s;
+        }
+        return mdd.or(mdd.diff(s, source), image(d, machineId, transition.getTarget().getName()));
+    }
+}
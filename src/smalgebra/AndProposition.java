@@ -2,13 +2,18 @@ package smalgebra;
 
 import assembly.Assembly;
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SymbolTable;
 
 /**
  * Rappresenta la congiunzione logica (AND) di due SMProposition.
  */
 public class AndProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -5909548251724879082L;
+
     private final SMProposition left;
     private final SMProposition right;
+    private transient int hash;
 
     public AndProposition(SMProposition left, SMProposition right) {
         this.left = left;
@@ -20,6 +25,11 @@ public class AndProposition implements SMProposition {
         return left.evaluate(assembly) && right.evaluate(assembly);
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        return left.evaluate(states, table) && right.evaluate(states, table);
+    }
+
     public SMProposition getLeft() {
         return left;
     }
@@ -33,8 +43,36 @@ public class AndProposition implements SMProposition {
         return "(" + left + " AND " + right + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AndProposition)) return false;
+        AndProposition that = (AndProposition) o;
+        return hashCode() == that.hashCode() && left.equals(that.left) && right.equals(that.right);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * 17 + left.hashCode()) + right.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Propositions are immutable: the clone is the proposition itself.
+     */
     @Override
     public SMProposition clone() {
-        return new AndProposition(this.left.clone(), this.right.clone());
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import assembly.AssemblyInterface;
 import machinery.StateInterface;
 import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,8 +15,14 @@ import java.util.Objects;
  * Rappresenta una proposizione di stato elementare del tipo "machineId.stateName".
  */
 public class BasicStateProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -7488951318359685194L;
+
     private final String machineId;
     private final String stateName;
+    private transient int hash;
+    /** Symbol-table indices of machineId and stateName, resolved on first vector evaluation. */
+    private transient volatile Symbols symbols;
 
     public BasicStateProposition(String machineId, String stateName) {
         this.machineId = machineId;
@@ -35,6 +42,22 @@ public class BasicStateProposition implements SMProposition {
         return current.getName().equals(stateName);
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        Symbols sym = symbols;
+        if (sym == null || sym.table != table) {
+            int machine = table.machineIndexOf(machineId);
+            int state = table.stateIndexOf(machineId, stateName);
+            if (machine == SymbolTable.NONE || state == SymbolTable.NONE) {
+                // Not cached: the symbols may still be interned later.
+                return false;
+            }
+            sym = new Symbols(table, machine, state);
+            symbols = sym;
+        }
+        return sym.machine < states.length && states[sym.machine] == sym.state;
+    }
+
     public String getMachineId() {
         return machineId;
     }
@@ -58,12 +81,27 @@ public class BasicStateProposition implements SMProposition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(machineId, stateName);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(machineId, stateName);
+            hash = h;
+        }
+        return h;
     }
 
+    /**
+     * Propositions are immutable: the clone is the proposition itself.
+     */
     @Override
     public SMProposition clone() {
-        return new BasicStateProposition(this.machineId, this.stateName);
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 
     /**
@@ -91,4 +129,17 @@ public class BasicStateProposition implements SMProposition {
         sem.addConfiguration(this.toConf(assembly));
         return sem;
     }
+
+    /** Indices are never reassigned in a {@link SymbolTable}, so a resolution stays valid for its table. */
+    private static final class Symbols {
+        final SymbolTable table;
+        final int machine;
+        final int state;
+
+        Symbols(SymbolTable table, int machine, int state) {
+            this.table = table;
+            this.machine = machine;
+            this.state = state;
+        }
+    }
 }
\ No newline at end of file
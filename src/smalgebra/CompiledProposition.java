@@ -0,0 +1,225 @@
+package smalgebra;
+
+import pws.editor.semantics.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An {@link SMProposition} flattened into a postfix program over the state indices of a {@link SymbolTable}.
+ *
+ * <p>Each {@link BasicStateProposition} becomes a single test of one entry of the state vector and the
+ * connectives become stack operations, so evaluating a guard over a whole universe no longer walks the tree
+ * through interface calls, map lookups and string comparisons. Programs whose stack fits in 64 entries, which is
+ * the case of every proposition the editor builds, keep the stack in a {@code long}: evaluation allocates nothing
+ * and a program can be shared by any number of threads.</p>
+ *
+ * <p>Programs are cached per proposition (see {@link #of(SMProposition, SymbolTable)}). Indices are never
+ * reassigned in a symbol table, so a program stays valid when the assembly is edited; it is rebuilt only when the
+ * same proposition is evaluated against another assembly's table.</p>
+ */
+public final class CompiledProposition {
+    private static final int PUSH_FALSE = 0;
+    private static final int PUSH_TRUE = 1;
+    /** Followed by a machine index and a state index. */
+    private static final int TEST = 2;
+    private static final int AND = 3;
+    private static final int OR = 4;
+    private static final int NOT = 5;
+    /** Followed by an index in {@link #opaque}: a proposition of unknown type, evaluated as is. */
+    private static final int CALL = 6;
+
+    private static final Map<SMProposition, CompiledProposition> CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final SymbolTable table;
+    private final int[] code;
+    private final SMProposition[] opaque;
+    private final int maxDepth;
+
+    private CompiledProposition(SymbolTable table, int[] code, SMProposition[] opaque, int maxDepth) {
+        this.table = table;
+        this.code = code;
+        this.opaque = opaque;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return the compiled form of the proposition over the given table, from the cache when possible
+     */
+    public static CompiledProposition of(SMProposition proposition, SymbolTable table) {
+        CompiledProposition compiled = CACHE.get(proposition);
+        if (compiled == null || compiled.table != table) {
+            compiled = compile(proposition, table);
+            CACHE.put(proposition, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles the proposition without going through the cache. The machines and states it mentions are interned
+     * in the table, so the program does not depend on the order in which symbols are first seen.
+     */
+    public static CompiledProposition compile(SMProposition proposition, SymbolTable table) {
+        Emitter emitter = new Emitter(table);
+        emitter.emit(proposition);
+        return new CompiledProposition(table, emitter.code(), emitter.opaque.toArray(new SMProposition[0]),
+                emitter.maxDepth);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return table;
+    }
+
+    /**
+     * Same result as {@link SMProposition#evaluate(int[], SymbolTable)} on the table this program was compiled for.
+     */
+    public boolean evaluate(int[] states) {
+        if (maxDepth > Long.SIZE) {
+            return evaluateOnArray(states);
+        }
+        long stack = 0L;
+        int[] c = code;
+        int pc = 0;
+        while (pc < c.length) {
+            switch (c[pc++]) {
+                case PUSH_FALSE:
+                    stack <<= 1;
+                    break;
+                case PUSH_TRUE:
+                    stack = (stack << 1) | 1L;
+                    break;
+                case TEST: {
+                    int m = c[pc++];
+                    int s = c[pc++];
+                    stack = (stack << 1) | (m < states.length && states[m] == s ? 1L : 0L);
+                    break;
+                }
+                case AND:
+                    stack = (stack >>> 1) & (stack | ~1L);
+                    break;
+                case OR:
+                    stack = (stack >>> 1) | (stack & 1L);
+                    break;
+                case NOT:
+                    stack ^= 1L;
+                    break;
+                case CALL:
+                    stack = (stack << 1) | (opaque[c[pc++]].evaluate(states, table) ? 1L : 0L);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad opcode at " + (pc - 1));
+            }
+        }
+        return (stack & 1L) != 0;
+    }
+
+    private boolean evaluateOnArray(int[] states) {
+        boolean[] stack = new boolean[maxDepth];
+        int top = -1;
+        int[] c = code;
+        int pc = 0;
+        while (pc < c.length) {
+            switch (c[pc++]) {
+                case PUSH_FALSE:
+                    stack[++top] = false;
+                    break;
+                case PUSH_TRUE:
+                    stack[++top] = true;
+                    break;
+                case TEST: {
+                    int m = c[pc++];
+                    int s = c[pc++];
+                    stack[++top] = m < states.length && states[m] == s;
+                    break;
+                }
+                case AND:
+                    top--;
+                    stack[top] = stack[top] && stack[top + 1];
+                    break;
+                case OR:
+                    top--;
+                    stack[top] = stack[top] || stack[top + 1];
+                    break;
+                case NOT:
+                    stack[top] = !stack[top];
+                    break;
+                case CALL:
+                    stack[++top] = opaque[c[pc++]].evaluate(states, table);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad opcode at " + (pc - 1));
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Post-order walk of the proposition tree, tracking the stack depth the program needs.
+     */
+    private static final class Emitter {
+        private final SymbolTable table;
+        private int[] code = new int[16];
+        private int length;
+        private int depth;
+        private int maxDepth;
+        private final List<SMProposition> opaque = new ArrayList<>();
+
+        Emitter(SymbolTable table) {
+            this.table = table;
+        }
+
+        void emit(SMProposition p) {
+            if (p instanceof BasicStateProposition) {
+                BasicStateProposition bsp = (BasicStateProposition) p;
+                push(TEST, table.internMachine(bsp.getMachineId()),
+                        table.internState(bsp.getMachineId(), bsp.getStateName()));
+            } else if (p instanceof AndProposition) {
+                emit(((AndProposition) p).getLeft());
+                emit(((AndProposition) p).getRight());
+                pop(AND);
+            } else if (p instanceof OrProposition) {
+                emit(((OrProposition) p).getLeft());
+                emit(((OrProposition) p).getRight());
+                pop(OR);
+            } else if (p instanceof NotProposition) {
+                emit(((NotProposition) p).getProposition());
+                append(NOT);
+            } else if (p instanceof TrueProposition) {
+                push(PUSH_TRUE);
+            } else if (p instanceof FalseProposition) {
+                push(PUSH_FALSE);
+            } else {
+                opaque.add(p);
+                push(CALL, opaque.size() - 1);
+            }
+        }
+
+        private void push(int... instruction) {
+            append(instruction);
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void pop(int opcode) {
+            append(opcode);
+            depth--;
+        }
+
+        private void append(int... words) {
+            while (length + words.length > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            System.arraycopy(words, 0, code, length, words.length);
+            length += words.length;
+        }
+
+        int[] code() {
+            return Arrays.copyOf(code, length);
+        }
+    }
+}
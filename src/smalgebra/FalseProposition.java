@@ -1,21 +1,46 @@
 package smalgebra;
 
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SymbolTable;
 
 public class FalseProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 8163292228361961554L;
 
     @Override
     public boolean evaluate(AssemblyInterface assembly) {
         return false;
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        return false;
+    }
+
     @Override
     public String toString() {
         return "FALSE";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FalseProposition;
+    }
+
+    @Override
+    public int hashCode() {
+        return 1237;
+    }
+
     @Override
     public SMProposition clone() {
-        return new FalseProposition();
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package smalgebra;
 
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SymbolTable;
 
 /**
  * Rappresenta la negazione logica (NOT) di una SMProposition.
  */
 public class NotProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = -3617491694763930059L;
+
     private final SMProposition proposition;
+    private transient int hash;
 
     public NotProposition(SMProposition proposition) {
         this.proposition = proposition;
@@ -17,6 +22,11 @@ public class NotProposition implements SMProposition {
         return !proposition.evaluate(assembly);
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        return !proposition.evaluate(states, table);
+    }
+
     public SMProposition getProposition() {
         return proposition;
     }
@@ -26,8 +36,36 @@ public class NotProposition implements SMProposition {
         return "(NOT " + proposition + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NotProposition)) return false;
+        NotProposition that = (NotProposition) o;
+        return hashCode() == that.hashCode() && proposition.equals(that.proposition);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * 23 + proposition.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Propositions are immutable: the clone is the proposition itself.
+     */
     @Override
     public SMProposition clone() {
-        return new NotProposition(this.proposition.clone());
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package smalgebra;
 
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SymbolTable;
 
 /**
  * Rappresenta la disgiunzione logica (OR) di due SMProposition.
  */
 public class OrProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 8535690856482434901L;
+
     private final SMProposition left;
     private final SMProposition right;
+    private transient int hash;
 
     public OrProposition(SMProposition left, SMProposition right) {
         this.left = left;
@@ -19,6 +24,11 @@ public class OrProposition implements SMProposition {
         return left.evaluate(assembly) || right.evaluate(assembly);
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        return left.evaluate(states, table) || right.evaluate(states, table);
+    }
+
     public SMProposition getLeft() {
         return left;
     }
@@ -32,8 +42,36 @@ public class OrProposition implements SMProposition {
         return "(" + left + " OR " + right + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrProposition)) return false;
+        OrProposition that = (OrProposition) o;
+        return hashCode() == that.hashCode() && left.equals(that.left) && right.equals(that.right);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * 19 + left.hashCode()) + right.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Propositions are immutable: the clone is the proposition itself.
+     */
     @Override
     public SMProposition clone() {
-        return new OrProposition(this.left.clone(), this.right.clone());
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 }
\ No newline at end of file
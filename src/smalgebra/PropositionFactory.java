@@ -0,0 +1,100 @@
+package smalgebra;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing factory for {@link SMProposition}s.
+ *
+ * <p>Every proposition built here is interned: structurally equal propositions are the same object, so the
+ * propositions in use form a shared DAG in which a guard repeated on many transitions, or a subformula repeated
+ * by {@link SMProposition#toDNF()}, exists once. Since the children of an interned node are interned too,
+ * {@code equals} between interned nodes is decided on the children's identity, in constant time, and
+ * propositions can be used as keys of caches such as the one of {@link CompiledProposition}.</p>
+ *
+ * <p>The table holds its nodes weakly: a proposition no longer referenced elsewhere is reclaimed. Propositions
+ * built with the constructors are not interned until passed to {@link #intern(SMProposition)}; deserialized
+ * propositions are interned on load.</p>
+ */
+public final class PropositionFactory {
+    private static final Map<SMProposition, WeakReference<SMProposition>> NODES = new WeakHashMap<>();
+
+    public static final SMProposition TRUE = intern(new TrueProposition());
+    public static final SMProposition FALSE = intern(new FalseProposition());
+
+    private PropositionFactory() {
+    }
+
+    public static BasicStateProposition atom(String machineId, String stateName) {
+        return (BasicStateProposition) intern(new BasicStateProposition(machineId, stateName));
+    }
+
+    public static SMProposition and(SMProposition left, SMProposition right) {
+        return intern(new AndProposition(intern(left), intern(right)));
+    }
+
+    public static SMProposition or(SMProposition left, SMProposition right) {
+        return intern(new OrProposition(intern(left), intern(right)));
+    }
+
+    public static SMProposition not(SMProposition proposition) {
+        return intern(new NotProposition(intern(proposition)));
+    }
+
+    /**
+     * @return the canonical proposition structurally equal to p; p itself if it is the first of its kind.
+     *         Propositions of types this factory does not know are returned as they are.
+     *         A proposition already in the table is found with one lookup, without visiting its children, so
+     *         building a node on interned children takes constant time.
+     */
+    public static synchronized SMProposition intern(SMProposition p) {
+        if (!(p instanceof AndProposition || p instanceof OrProposition || p instanceof NotProposition
+                || p instanceof BasicStateProposition || p instanceof TrueProposition
+                || p instanceof FalseProposition)) {
+            return p;
+        }
+        WeakReference<SMProposition> ref = NODES.get(p);
+        SMProposition existing = ref != null ? ref.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        // Not in the table: intern the children, then the node on top of them.
+        if (p instanceof AndProposition) {
+            AndProposition ap = (AndProposition) p;
+            SMProposition left = intern(ap.getLeft());
+            SMProposition right = intern(ap.getRight());
+            return canonical(left == ap.getLeft() && right == ap.getRight() ? p : new AndProposition(left, right));
+        } else if (p instanceof OrProposition) {
+            OrProposition op = (OrProposition) p;
+            SMProposition left = intern(op.getLeft());
+            SMProposition right = intern(op.getRight());
+            return canonical(left == op.getLeft() && right == op.getRight() ? p : new OrProposition(left, right));
+        } else if (p instanceof NotProposition) {
+            NotProposition np = (NotProposition) p;
+            SMProposition inner = intern(np.getProposition());
+            return canonical(inner == np.getProposition() ? p : new NotProposition(inner));
+        }
+        return canonical(p);
+    }
+
+    /**
+     * @return the number of interned propositions still alive
+     */
+    public static synchronized int size() {
+        return NODES.size();
+    }
+
+    /**
+     * Looks up a node whose children are already canonical.
+     */
+    private static SMProposition canonical(SMProposition p) {
+        WeakReference<SMProposition> ref = NODES.get(p);
+        SMProposition existing = ref != null ? ref.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        NODES.put(p, new WeakReference<>(p));
+        return p;
+    }
+}
@@ -2,11 +2,17 @@ package smalgebra;
 
 import assembly.Assembly;
 import assembly.AssemblyInterface;
+import assembly.ConfigurationCursor;
+import assembly.ConfigurationSpliterator;
 import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsCache;
+import pws.editor.semantics.SymbolTable;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface SMProposition extends Cloneable, Serializable {
 
@@ -15,6 +21,32 @@ public interface SMProposition extends Cloneable, Serializable {
 
     boolean evaluate(AssemblyInterface assembly);
 
+    /**
+     * Evaluates the proposition on a configuration given as a state vector over the assembly's
+     * {@link SymbolTable}: entry i is the state index of machine i, or {@link SymbolTable#NONE} if machine i
+     * has no current state. Machines beyond the end of the vector have no current state either.
+     * Unlike {@link #evaluate(AssemblyInterface)} nothing is read from the machines, so any number of threads
+     * can evaluate concurrently, each on its own vector (for instance {@link ConfigurationCursor#current()}).
+     *
+     * @param states the state vector; it is only read
+     * @param table  the symbol table the vector refers to
+     */
+    boolean evaluate(int[] states, SymbolTable table);
+
+    /**
+     * Evaluates the proposition on a configuration without touching any machine: machines the configuration
+     * does not constrain have no current state.
+     *
+     * @throws IllegalArgumentException if the configuration constrains the same machine twice
+     */
+    default boolean evaluate(Configuration config) {
+        int[] states = config.stateVector();
+        if (states == null) {
+            throw new IllegalArgumentException("Configuration " + config + " constrains a machine twice.");
+        }
+        return evaluate(states, SymbolTable.forAssembly(config.getAssemblyId()));
+    }
+
     /**
      * Trasforma l'espressione sostituendo, per la macchina data, lo stato fromState con toState.
      * (Non viene più controllata l'ontologica validità dell'espressione.)
@@ -23,7 +55,7 @@ public interface SMProposition extends Cloneable, Serializable {
         if (this instanceof BasicStateProposition) {
             BasicStateProposition bsp = (BasicStateProposition) this;
             if (bsp.getMachineId().equals(machineId) && bsp.getStateName().equals(fromState)) {
-                return new BasicStateProposition(machineId, toState);
+                return PropositionFactory.atom(machineId, toState);
             } else {
                 return bsp;
             }
@@ -31,16 +63,16 @@ public interface SMProposition extends Cloneable, Serializable {
             AndProposition ap = (AndProposition) this;
             SMProposition newLeft = ap.getLeft().transform(machineId, fromState, toState, assembly);
             SMProposition newRight = ap.getRight().transform(machineId, fromState, toState, assembly);
-            return new AndProposition(newLeft, newRight);
+            return PropositionFactory.and(newLeft, newRight);
         } else if (this instanceof OrProposition) {
             OrProposition op = (OrProposition) this;
             SMProposition newLeft = op.getLeft().transform(machineId, fromState, toState, assembly);
             SMProposition newRight = op.getRight().transform(machineId, fromState, toState, assembly);
-            return new OrProposition(newLeft, newRight);
+            return PropositionFactory.or(newLeft, newRight);
         } else if (this instanceof NotProposition) {
             NotProposition np = (NotProposition) this;
             SMProposition newProp = np.getProposition().transform(machineId, fromState, toState, assembly);
-            return new NotProposition(newProp);
+            return PropositionFactory.not(newProp);
         } else {
             return this;
         }
@@ -66,11 +98,11 @@ public interface SMProposition extends Cloneable, Serializable {
     }
 
     default SMProposition andBSP(BasicStateProposition bsp) {
-        return new AndProposition(bsp, this);
+        return PropositionFactory.and(bsp, this);
     }
 
     default SMProposition negate() {
-        return new NotProposition(this);
+        return PropositionFactory.not(this);
     }
 
     /**
@@ -94,25 +126,25 @@ public interface SMProposition extends Cloneable, Serializable {
                 return ((NotProposition) inner).getProposition().toNNF();
             } else if (inner instanceof AndProposition) {
                 // ¬(A ∧ B) = ¬A ∨ ¬B
-                SMProposition left = new NotProposition(((AndProposition) inner).getLeft()).toNNF();
-                SMProposition right = new NotProposition(((AndProposition) inner).getRight()).toNNF();
-                return new OrProposition(left, right);
+                SMProposition left = PropositionFactory.not(((AndProposition) inner).getLeft()).toNNF();
+                SMProposition right = PropositionFactory.not(((AndProposition) inner).getRight()).toNNF();
+                return PropositionFactory.or(left, right);
             } else if (inner instanceof OrProposition) {
                 // ¬(A ∨ B) = ¬A ∧ ¬B
-                SMProposition left = new NotProposition(((OrProposition) inner).getLeft()).toNNF();
-                SMProposition right = new NotProposition(((OrProposition) inner).getRight()).toNNF();
-                return new AndProposition(left, right);
+                SMProposition left = PropositionFactory.not(((OrProposition) inner).getLeft()).toNNF();
+                SMProposition right = PropositionFactory.not(((OrProposition) inner).getRight()).toNNF();
+                return PropositionFactory.and(left, right);
             } else {
-                return new NotProposition(inner.toNNF());
+                return PropositionFactory.not(inner.toNNF());
             }
         } else if (this instanceof AndProposition) {
             SMProposition left = ((AndProposition) this).getLeft().toNNF();
             SMProposition right = ((AndProposition) this).getRight().toNNF();
-            return new AndProposition(left, right);
+            return PropositionFactory.and(left, right);
         } else if (this instanceof OrProposition) {
             SMProposition left = ((OrProposition) this).getLeft().toNNF();
             SMProposition right = ((OrProposition) this).getRight().toNNF();
-            return new OrProposition(left, right);
+            return PropositionFactory.or(left, right);
         }
         return this; // default
     }
@@ -145,24 +177,24 @@ public interface SMProposition extends Cloneable, Serializable {
             if (left instanceof AndProposition) {
                 SMProposition a = ((AndProposition) left).getLeft();
                 SMProposition b = ((AndProposition) left).getRight();
-                return new AndProposition(
-                        distributeOrOverAnd(new OrProposition(a, right)),
-                        distributeOrOverAnd(new OrProposition(b, right))
+                return PropositionFactory.and(
+                        distributeOrOverAnd(PropositionFactory.or(a, right)),
+                        distributeOrOverAnd(PropositionFactory.or(b, right))
                 );
             } else if (right instanceof AndProposition) {
                 SMProposition a = ((AndProposition) right).getLeft();
                 SMProposition b = ((AndProposition) right).getRight();
-                return new AndProposition(
-                        distributeOrOverAnd(new OrProposition(left, a)),
-                        distributeOrOverAnd(new OrProposition(left, b))
+                return PropositionFactory.and(
+                        distributeOrOverAnd(PropositionFactory.or(left, a)),
+                        distributeOrOverAnd(PropositionFactory.or(left, b))
                 );
             } else {
-                return new OrProposition(left, right);
+                return PropositionFactory.or(left, right);
             }
         } else if (expr instanceof AndProposition) {
             SMProposition left = distributeOrOverAnd(((AndProposition) expr).getLeft());
             SMProposition right = distributeOrOverAnd(((AndProposition) expr).getRight());
-            return new AndProposition(left, right);
+            return PropositionFactory.and(left, right);
         }
         // Per NotProposition e BasicStateProposition, la distribuzione non cambia nulla.
         return expr;
@@ -180,24 +212,24 @@ public interface SMProposition extends Cloneable, Serializable {
             if (left instanceof OrProposition) {
                 SMProposition a = ((OrProposition) left).getLeft();
                 SMProposition b = ((OrProposition) left).getRight();
-                return new OrProposition(
-                        distributeAndOverOr(new AndProposition(a, right)),
-                        distributeAndOverOr(new AndProposition(b, right))
+                return PropositionFactory.or(
+                        distributeAndOverOr(PropositionFactory.and(a, right)),
+                        distributeAndOverOr(PropositionFactory.and(b, right))
                 );
             } else if (right instanceof OrProposition) {
                 SMProposition a = ((OrProposition) right).getLeft();
                 SMProposition b = ((OrProposition) right).getRight();
-                return new OrProposition(
-                        distributeAndOverOr(new AndProposition(left, a)),
-                        distributeAndOverOr(new AndProposition(left, b))
+                return PropositionFactory.or(
+                        distributeAndOverOr(PropositionFactory.and(left, a)),
+                        distributeAndOverOr(PropositionFactory.and(left, b))
                 );
             } else {
-                return new AndProposition(left, right);
+                return PropositionFactory.and(left, right);
             }
         } else if (expr instanceof OrProposition) {
             SMProposition left = distributeAndOverOr(((OrProposition) expr).getLeft());
             SMProposition right = distributeAndOverOr(((OrProposition) expr).getRight());
-            return new OrProposition(left, right);
+            return PropositionFactory.or(left, right);
         }
         // Per NotProposition e BasicStateProposition, la distribuzione non cambia nulla.
         return expr;
@@ -211,6 +243,8 @@ public interface SMProposition extends Cloneable, Serializable {
      * Evaluates the SMProposition on a given fully-specified configuration by creating an ad hoc Assembly.
      * It creates an Assembly with the assemblyId from the configuration and sets each machine's current state
      * according to the BasicStatePropositions in the configuration, then calls evaluate(AssemblyInterface).
+     * {@link #evaluate(Configuration)} gives the same answer for fully-specified configurations without
+     * modifying the assembly.
      */
     default boolean evaluateConfiguration(Configuration config, AssemblyInterface properAssembly) {
         // Use the provided fully-initialized assembly instead of creating a new one.
@@ -233,24 +267,70 @@ public interface SMProposition extends Cloneable, Serializable {
         return evaluate(adHocAssembly);
     }
 
+    /**
+     * Converts this SMProposition into a Semantics object, as {@link #computeSemantics(Assembly)} does,
+     * through the shared {@link SemanticsCache}: a proposition already converted for an assembly of the same
+     * structure is not evaluated again.
+     *
+     * @param assembly the Assembly instance used to generate the universe of configurations.
+     * @return a Semantics object representing the set of configurations where this proposition holds.
+     */
+    default Semantics toSemantics(Assembly assembly) {
+        return SemanticsCache.shared().toSemantics(this, assembly);
+    }
+
     /**
      * Converts this SMProposition into a Semantics object by evaluating it over
      * the universe of fully-specified configurations generated from the provided Assembly.
      * Only those configurations for which the proposition evaluates to true are included.
+     * The universe is scanned with a {@link ConfigurationCursor} and each configuration is evaluated on the
+     * cursor's state vector by the proposition's {@link CompiledProposition}, so the machines' current states
+     * are never modified. Universes larger than {@link ConfigurationSpliterator#PARALLEL_THRESHOLD}
+     * are evaluated on a {@link TruthTable} when it {@link TruthTable#fits(long) fits}, and scanned by
+     * {@link #toSemanticsParallel(Assembly)} otherwise.
      *
      * @param assembly the Assembly instance used to generate the universe of configurations.
      * @return a Semantics object representing the set of configurations where this proposition holds.
      */
-    default Semantics toSemantics(Assembly assembly) {
+    default Semantics computeSemantics(Assembly assembly) {
         Semantics result = new Semantics(assembly.getAssemblyId());
-        // Generate the full universe of configurations from the Assembly.
-        Set<Configuration> universe = assembly.generateUniverse();
-        for (Configuration config : universe) {
-            // Evaluate the proposition on the configuration using evaluateConfiguration.
-            if (this.evaluateConfiguration(config, assembly)) {
-                result.addConfiguration(config);
+        ConfigurationCursor cursor = ConfigurationCursor.overUniverse(assembly);
+        if (cursor.size() > ConfigurationSpliterator.PARALLEL_THRESHOLD) {
+            if (TruthTable.fits(cursor.size())) {
+                TruthTable table = new TruthTable(assembly, false);
+                return table.toSemantics(table.evaluate(this));
+            }
+            return toSemanticsParallel(assembly);
+        }
+        CompiledProposition program = CompiledProposition.of(this, cursor.getSymbolTable());
+        int[] states = cursor.current();
+        while (cursor.next()) {
+            if (program.evaluate(states)) {
+                result.addConfiguration(cursor.toConfiguration());
             }
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Same as {@link #computeSemantics(Assembly)}, but the universe is split across the common fork-join pool by a
+     * {@link ConfigurationSpliterator}. Each split evaluates the proposition on its own cursor's state vector.
+     * The satisfying configurations are collected in
+     * enumeration order and then added one by one, so the result is the same as the sequential one.
+     *
+     * @param assembly the Assembly instance used to generate the universe of configurations.
+     * @return a Semantics object representing the set of configurations where this proposition holds.
+     */
+    default Semantics toSemanticsParallel(Assembly assembly) {
+        CompiledProposition program = CompiledProposition.of(this, SymbolTable.forAssembly(assembly.getAssemblyId()));
+        List<Configuration> satisfying = ConfigurationSpliterator.stream(assembly, false, true)
+                .filter(cursor -> program.evaluate(cursor.current()))
+                .map(ConfigurationCursor::toConfiguration)
+                .collect(Collectors.toList());
+        Semantics result = new Semantics(assembly.getAssemblyId());
+        for (Configuration c : satisfying) {
+            result.addConfiguration(c);
+        }
+        return result;
+    }
+}
@@ -1,21 +1,46 @@
 package smalgebra;
 
 import assembly.AssemblyInterface;
+import pws.editor.semantics.SymbolTable;
 
 public class TrueProposition implements SMProposition {
+    /** Pinned to the value of the first release, so that saved models keep loading. */
+    private static final long serialVersionUID = 2012011666062047432L;
 
     @Override
     public boolean evaluate(AssemblyInterface assembly) {
         return true;
     }
 
+    @Override
+    public boolean evaluate(int[] states, SymbolTable table) {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "TRUE";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TrueProposition;
+    }
+
+    @Override
+    public int hashCode() {
+        return 1231;
+    }
+
     @Override
     public SMProposition clone() {
-        return new TrueProposition();
+        return this;
+    }
+
+    /**
+     * Deserialized propositions join the shared DAG of {@link PropositionFactory}.
+     */
+    private Object readResolve() {
+        return PropositionFactory.intern(this);
     }
 }
\ No newline at end of file
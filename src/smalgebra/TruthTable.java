@@ -0,0 +1,201 @@
+package smalgebra;
+
+import assembly.Assembly;
+import assembly.ConfigurationCursor;
+import pws.editor.semantics.Semantics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bit-parallel evaluation of propositions over the whole configuration space of an {@link Assembly}.
+ *
+ * <p>This is the one-hot view of {@link smalgebra.DEMO.AssemblyTruthTableMapper} turned around: instead of one
+ * vector per configuration, each {@link BasicStateProposition} is a bitmap over the configurations, bit r being
+ * set when the configuration of rank r (see {@link ConfigurationCursor#seek(long)}) satisfies it. The connectives
+ * then become word-wise operations on {@code long[]}, 64 configurations at a time; the loops are simple enough for
+ * the JIT to vectorize them.</p>
+ *
+ * <p>A bitmap takes one bit per configuration, so tables are limited to {@link #MAX_SIZE} configurations.
+ * Atom bitmaps are built on demand and kept for the lifetime of the table. Not thread-safe.</p>
+ */
+public final class TruthTable {
+    /** Largest space a table is built for: 32 MB per bitmap. */
+    public static final long MAX_SIZE = 1L << 28;
+
+    private final Assembly assembly;
+    private final ConfigurationCursor cursor;
+    private final long size;
+    private final int words;
+    /** For each machine of the cursor, the number of consecutive ranks sharing the same state. */
+    private final long[] strides;
+    private final Map<BasicStateProposition, long[]> atoms = new HashMap<>();
+
+    /**
+     * @param assembly            the assembly whose configurations are ranked
+     * @param includePseudoStates see {@link ConfigurationCursor#ConfigurationCursor(Assembly, boolean)}
+     * @throws IllegalArgumentException if the space has more than {@link #MAX_SIZE} configurations
+     */
+    public TruthTable(Assembly assembly, boolean includePseudoStates) {
+        this.assembly = assembly;
+        this.cursor = new ConfigurationCursor(assembly, includePseudoStates);
+        this.size = cursor.size();
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Too many configurations for a truth table: " + size + ".");
+        }
+        this.words = (int) ((size + Long.SIZE - 1) / Long.SIZE);
+        this.strides = new long[cursor.machineCount()];
+        long stride = 1;
+        for (int k = strides.length - 1; k >= 0; k--) {
+            strides[k] = stride;
+            stride *= cursor.stateCount(k);
+        }
+    }
+
+    /**
+     * @return whether a table can be built for the given space size
+     */
+    public static boolean fits(long size) {
+        return size <= MAX_SIZE;
+    }
+
+    /**
+     * @return the number of configurations
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return a new bitmap of the configurations satisfying the proposition
+     */
+    public long[] evaluate(SMProposition p) {
+        if (p instanceof BasicStateProposition) {
+            return atom((BasicStateProposition) p).clone();
+        } else if (p instanceof AndProposition) {
+            long[] left = evaluate(((AndProposition) p).getLeft());
+            long[] right = evaluate(((AndProposition) p).getRight());
+            for (int i = 0; i < words; i++) {
+                left[i] &= right[i];
+            }
+            return left;
+        } else if (p instanceof OrProposition) {
+            long[] left = evaluate(((OrProposition) p).getLeft());
+            long[] right = evaluate(((OrProposition) p).getRight());
+            for (int i = 0; i < words; i++) {
+                left[i] |= right[i];
+            }
+            return left;
+        } else if (p instanceof NotProposition) {
+            long[] inner = evaluate(((NotProposition) p).getProposition());
+            for (int i = 0; i < words; i++) {
+                inner[i] = ~inner[i];
+            }
+            clearTail(inner);
+            return inner;
+        } else if (p instanceof TrueProposition) {
+            long[] all = new long[words];
+            Arrays.fill(all, -1L);
+            clearTail(all);
+            return all;
+        } else if (p instanceof FalseProposition) {
+            return new long[words];
+        }
+        return scan(p);
+    }
+
+    /**
+     * @return a Semantics with the configuration of every rank set in the bitmap, added in rank order
+     */
+    public Semantics toSemantics(long[] bits) {
+        Semantics result = new Semantics(assembly.getAssemblyId());
+        for (int i = 0; i < words; i++) {
+            long w = bits[i];
+            while (w != 0) {
+                cursor.seek((long) i * Long.SIZE + Long.numberOfTrailingZeros(w));
+                result.addConfiguration(cursor.toConfiguration());
+                w &= w - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of configurations set in the bitmap
+     */
+    public long count(long[] bits) {
+        long n = 0;
+        for (int i = 0; i < words; i++) {
+            n += Long.bitCount(bits[i]);
+        }
+        return n;
+    }
+
+    /**
+     * Bitmap of an atom, built once: the ranks where machine k is in state d form runs of strides[k] ranks,
+     * one every stateCount(k) runs.
+     */
+    private long[] atom(BasicStateProposition bsp) {
+        long[] bits = atoms.get(bsp);
+        if (bits != null) {
+            return bits;
+        }
+        bits = new long[words];
+        for (int k = 0; k < cursor.machineCount(); k++) {
+            if (!cursor.machineId(k).equals(bsp.getMachineId())) {
+                continue;
+            }
+            for (int d = 0; d < cursor.stateCount(k); d++) {
+                if (cursor.state(k, d).getName().equals(bsp.getStateName())) {
+                    long run = strides[k];
+                    long period = run * cursor.stateCount(k);
+                    for (long from = d * run; from < size; from += period) {
+                        setRange(bits, from, from + run);
+                    }
+                }
+            }
+        }
+        atoms.put(bsp, bits);
+        return bits;
+    }
+
+    /**
+     * Fallback for proposition types the table does not know: one evaluation per configuration.
+     */
+    private long[] scan(SMProposition p) {
+        long[] bits = new long[words];
+        cursor.reset();
+        long rank = 0;
+        while (cursor.next()) {
+            if (p.evaluate(cursor.current(), cursor.getSymbolTable())) {
+                bits[(int) (rank >>> 6)] |= 1L << rank;
+            }
+            rank++;
+        }
+        return bits;
+    }
+
+    private static void setRange(long[] bits, long from, long to) {
+        int first = (int) (from >>> 6);
+        int last = (int) ((to - 1) >>> 6);
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            bits[first] |= firstMask & lastMask;
+            return;
+        }
+        bits[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            bits[i] = -1L;
+        }
+        bits[last] |= lastMask;
+    }
+
+    private void clearTail(long[] bits) {
+        int used = (int) (size & (Long.SIZE - 1));
+        if (used != 0) {
+            bits[words - 1] &= -1L >>> (Long.SIZE - used);
+        }
+    }
+}
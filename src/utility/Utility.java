@@ -32,7 +32,7 @@ public class Utility {
             // Se la proposizione elementare riguarda la macchina e lo stato da sostituire,
             // restituisce una nuova proposizione elementare con il nuovo stato.
             if (bsp.getMachineId().equals(machineId) && bsp.getStateName().equals(fromState)) {
-                return new BasicStateProposition(machineId, toState);
+                return PropositionFactory.atom(machineId, toState);
             } else {
                 return proposition;
             }
@@ -40,16 +40,16 @@ public class Utility {
             AndProposition ap = (AndProposition) proposition;
             SMProposition newLeft = transformByMachineIdAndState(ap.getLeft(), machineId, fromState, toState);
             SMProposition newRight = transformByMachineIdAndState(ap.getRight(), machineId, fromState, toState);
-            return new AndProposition(newLeft, newRight);
+            return PropositionFactory.and(newLeft, newRight);
         } else if (proposition instanceof OrProposition) {
             OrProposition op = (OrProposition) proposition;
             SMProposition newLeft = transformByMachineIdAndState(op.getLeft(), machineId, fromState, toState);
             SMProposition newRight = transformByMachineIdAndState(op.getRight(), machineId, fromState, toState);
-            return new OrProposition(newLeft, newRight);
+            return PropositionFactory.or(newLeft, newRight);
         } else if (proposition instanceof NotProposition) {
             NotProposition np = (NotProposition) proposition;
             SMProposition newProp = transformByMachineIdAndState(np.getProposition(), machineId, fromState, toState);
-            return new NotProposition(newProp);
+            return PropositionFactory.not(newProp);
         } else {
             // Se la SMProposition non è riconosciuta, restituiscila invariata.
             return proposition;
@@ -61,7 +61,8 @@ public class Utility {
      *
      * 1. Per ciascuna azione (ad esempio "m1.e") in actions:
      *    1.1 Recupera la state machine corrispondente dall'assembly, utilizzando l'identificatore (machineId).
-     *    1.2 Per ciascuno stato S della state machine:
+     *    1.2 Per ciascuno stato S della state machine sorgente di transizioni con quel trigger
+     *        (dall'indice {@link StateMachine#getTransitionsTriggeredBy(String)}):
      *          1.2.1 Se lo stato appartiene alla proposizione da trasformare
      *              a) Per ciascuna transizione triggerable in uscita da S avente trigger uguale a quello dell'azione,
      *              trasforma pre in post tramite SMPropositionTransformer.transformByMachineIdAndState.
@@ -88,22 +89,18 @@ public class Utility {
                 continue; // Se non vi sono macchine a stati associate a quell'id, passa alla prossima azione
             }
 
-            // Per ogni stato della state machine
-            for (StateInterface s : machine.getStates()) {
-                //  Per ogni transizione che origina da quello stato
-                // 1.2.1 Se lo stato appartiene alla proposizione da trasformare
-                BasicStateProposition bsp = new BasicStateProposition(machineId, s.getName());
-                if (bsp.ontoImplies(base,assembly)) {
-                    // allora per ciascuna delle sue transizioni che ha event come trigger
-                    for (TransitionInterface t : s.getOutgoingTransitions()) {
-                        // se t ha event come trigger
-                        if (t.isTriggerable() && t.getTriggerEvent().equals(event)) {
-                            // Trasforma pre in post usando il trasformatore
-                            workCopy = Utility.transformByMachineIdAndState(workCopy, machineId, t.getSource().getName(), t.getTarget().getName());
-                            // Aggrega il risultato con OR logico: se result è null, post diventa result; altrimenti,
-                            // result = OR(result, post)
-                        }
-                    }
+            // Per ogni transizione con quel trigger, raggruppate per stato sorgente nell'ordine degli stati
+            StateInterface source = null;
+            boolean inBase = false;
+            for (TransitionInterface t : machine.getTransitionsTriggeredBy(event)) {
+                // 1.2.1 Se lo stato sorgente appartiene alla proposizione da trasformare
+                if (t.getSource() != source) {
+                    source = t.getSource();
+                    inBase = new BasicStateProposition(machineId, source.getName()).ontoImplies(base, assembly);
+                }
+                // se t e' triggerable, trasforma pre in post usando il trasformatore
+                if (inBase && t.isTriggerable()) {
+                    workCopy = Utility.transformByMachineIdAndState(workCopy, machineId, source.getName(), t.getTarget().getName());
                 }
             }
         }